@@ -2,6 +2,11 @@ package operias;
 
 import java.io.File;
 import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeoutException;
 
 import operias.git.Git;
 
@@ -77,6 +82,126 @@ public class Configuration {
 	 */
 	private static boolean outputEnabled = false;
 	
+	/**
+	 * By default, the coverage xml is parsed as a stream instead of loading it into a DOM tree
+	 */
+	private static boolean streamingCoverageParserEnabled = true;
+	
+	/**
+	 * Amount of threads used to compare the source directories, by default they are compared within a single thread
+	 */
+	private static int diffParallelism = 1;
+	
+	/**
+	 * By default, all files are compared. When enabled, git is asked which files changed between the checked out commits
+	 */
+	private static boolean gitChangedFilesEnabled = false;
+	
+	/**
+	 * Directory containing the mirrors of cloned repositories, by default repositories are cloned without a cache
+	 */
+	private static String gitCacheDirectory = null;
+	
+	/**
+	 * Maximum size of the mirrors in the cache directory in bytes, the least recently used mirrors are removed first
+	 */
+	private static long gitCacheSize = 4096L * 1024 * 1024;
+	
+	/**
+	 * By default, git is executed as a command. When enabled, repositories are cloned, fetched, checked out and read in process
+	 * through JGit. The git cache, shallow and sparse clones, worktrees and the changed file detection still execute git as a command
+	 */
+	private static boolean inProcessGitEnabled = false;
+	
+	/**
+	 * By default, the sources are read from the directories. When enabled, they are read from the git objects of the checked out commits
+	 */
+	private static boolean gitSourcesEnabled = false;
+	
+	/**
+	 * Amount of commits fetched for every revision, by default (0) the complete history is cloned
+	 */
+	private static int shallowDepth = 0;
+	
+	/**
+	 * Directories to which the checkouts are restricted, by default (null) all files are checked out
+	 */
+	private static List<String> sparsePaths = null;
+	
+	/**
+	 * Directory containing the coverage results of earlier runs, by default (null) the coverage is always computed
+	 */
+	private static String coverageCacheDirectory = null;
+	
+	/**
+	 * By default, the build output is removed after cobertura was executed. Build output within the temporary directory is always left,
+	 * as the temporary directory is removed at the end
+	 */
+	private static boolean cleanUpEnabled = true;
+	
+	/**
+	 * Additional arguments passed to maven, for example to run offline or quiet
+	 */
+	private static List<String> mavenArguments = new ArrayList<String>();
+	
+	/**
+	 * Directory in which the output of maven is logged for the original and revised revision, by default the output is not kept
+	 */
+	private static String mavenLogDirectory = null;
+	
+	/**
+	 * Maximum time in seconds a maven execution may take, by default (0) there is no limit
+	 */
+	private static long mavenTimeout = 0;
+	
+	/**
+	 * Maximum time in seconds a git command may take, by default (0) there is no limit
+	 */
+	private static long gitTimeout = 0;
+	
+	/**
+	 * Local repository used by maven, by default (null) the local repository in the settings of the user
+	 */
+	private static String mavenRepository = null;
+	
+	/**
+	 * By default, maven downloads missing dependencies. When enabled, maven only uses the local repository
+	 */
+	private static boolean mavenOfflineEnabled = false;
+	
+	/**
+	 * Command used to execute maven. When set to mvnd, the builds are executed by the maven daemon,
+	 * which keeps its JVM, plugins and class loaders warm between builds
+	 */
+	private static String mavenCommand = "mvn";
+	
+	/**
+	 * By default, all modules of the revised project are built. When enabled, only the modules containing changes and the modules
+	 * depending on them are built, the coverage of the other modules is taken from the original project
+	 */
+	private static boolean selectiveBuildEnabled = false;
+	
+	/**
+	 * Number of processors the maven builds may use together, the original and revised build share them
+	 */
+	private static int cpuBudget = Runtime.getRuntime().availableProcessors();
+	
+	/**
+	 * Number of threads maven uses to build modules in parallel (-T), 0 to use the share of the build in the processor budget
+	 */
+	private static int mavenThreads = 1;
+	
+	/**
+	 * Number of JVMs surefire forks to run the tests in parallel, 0 to use the share of the build in the processor budget.
+	 * By default (-1), the configuration of the project is used
+	 */
+	private static int surefireForkCount = -1;
+	
+	/**
+	 * Level at which surefire runs tests in parallel within a JVM, such as classes or methods, null to use the configuration of the project
+	 */
+	private static String surefireParallel = null;
+	
 	/**
 	 * Parse the arguments passed by the command line
 	 * @param args
@@ -123,13 +248,83 @@ public class Configuration {
 				} else if (args[i].equals("-v") || args[i].equals("--verbose")) {
 					Configuration.setOutputEnabled(true);
 					i++;
+				} else if (args[i].equals("-dcp") || args[i].equals("--dom-coverage-parser")) {
+					Configuration.setStreamingCoverageParserEnabled(false);
+					i++;
+				} else if (args[i].equals("-dp") || args[i].equals("--diff-parallelism")) {
+					Configuration.setDiffParallelism(Integer.parseInt(args[i + 1]));
+					i += 2;
+				} else if (args[i].equals("-gcf") || args[i].equals("--git-changed-files")) {
+					Configuration.setGitChangedFilesEnabled(true);
+					i++;
+				} else if (args[i].equals("-gcd") || args[i].equals("--git-cache-directory")) {
+					Configuration.setGitCacheDirectory(args[i + 1]);
+					i += 2;
+				} else if (args[i].equals("-gcs") || args[i].equals("--git-cache-size")) {
+					Configuration.setGitCacheSize(Long.parseLong(args[i + 1]) * 1024 * 1024);
+					i += 2;
+				} else if (args[i].equals("-ig") || args[i].equals("--in-process-git")) {
+					Configuration.setInProcessGitEnabled(true);
+					i++;
+				} else if (args[i].equals("-gs") || args[i].equals("--git-sources")) {
+					Configuration.setGitSourcesEnabled(true);
+					i++;
+				} else if (args[i].equals("-sd") || args[i].equals("--shallow-depth")) {
+					Configuration.setShallowDepth(Integer.parseInt(args[i + 1]));
+					i += 2;
+				} else if (args[i].equals("-sp") || args[i].equals("--sparse-paths")) {
+					Configuration.setSparsePaths(Arrays.asList(args[i + 1].split(",")));
+					i += 2;
+				} else if (args[i].equals("-ccd") || args[i].equals("--coverage-cache-directory")) {
+					Configuration.setCoverageCacheDirectory(args[i + 1]);
+					i += 2;
+				} else if (args[i].equals("-ncu") || args[i].equals("--no-clean-up")) {
+					Configuration.setCleanUpEnabled(false);
+					i++;
+				} else if (args[i].equals("-ma") || args[i].equals("--maven-arguments")) {
+					Configuration.setMavenArguments(Arrays.asList(args[i + 1].trim().split("\\s+")));
+					i += 2;
+				} else if (args[i].equals("-mld") || args[i].equals("--maven-log-directory")) {
+					Configuration.setMavenLogDirectory(args[i + 1]);
+					i += 2;
+				} else if (args[i].equals("-mt") || args[i].equals("--maven-timeout")) {
+					Configuration.setMavenTimeout(Long.parseLong(args[i + 1]));
+					i += 2;
+				} else if (args[i].equals("-gt") || args[i].equals("--git-timeout")) {
+					Configuration.setGitTimeout(Long.parseLong(args[i + 1]));
+					i += 2;
+				} else if (args[i].equals("-mr") || args[i].equals("--maven-repository")) {
+					Configuration.setMavenRepository(args[i + 1]);
+					i += 2;
+				} else if (args[i].equals("-mo") || args[i].equals("--maven-offline")) {
+					Configuration.setMavenOfflineEnabled(true);
+					i++;
+				} else if (args[i].equals("-mc") || args[i].equals("--maven-command")) {
+					Configuration.setMavenCommand(args[i + 1]);
+					i += 2;
+				} else if (args[i].equals("-sb") || args[i].equals("--selective-build")) {
+					Configuration.setSelectiveBuildEnabled(true);
+					i++;
+				} else if (args[i].equals("-cb") || args[i].equals("--cpu-budget")) {
+					Configuration.setCpuBudget(Integer.parseInt(args[i + 1]));
+					i += 2;
+				} else if (args[i].equals("-mth") || args[i].equals("--maven-threads")) {
+					Configuration.setMavenThreads(args[i + 1].equals("auto") ? 0 : Integer.parseInt(args[i + 1]));
+					i += 2;
+				} else if (args[i].equals("-sfc") || args[i].equals("--surefire-fork-count")) {
+					Configuration.setSurefireForkCount(args[i + 1].equals("auto") ? 0 : Integer.parseInt(args[i + 1]));
+					i += 2;
+				} else if (args[i].equals("-spl") || args[i].equals("--surefire-parallel")) {
+					Configuration.setSurefireParallel(args[i + 1]);
+					i += 2;
 				} else {
-					Main.printLine("[Error] Unknown option \"" + args[i] + "\"");
-					System.exit(OperiasStatus.INVALID_ARGUMENTS.ordinal());
+					throw new OperiasException(OperiasStatus.INVALID_ARGUMENTS, "Unknown option \"" + args[i] + "\"");
 				}
 			}
+		} catch (OperiasException e) {
+			throw e;
 		} catch (Exception e) {
-			System.exit(OperiasStatus.INVALID_ARGUMENTS.ordinal());
+			throw new OperiasException(OperiasStatus.INVALID_ARGUMENTS, "Invalid arguments: " + e.getMessage(), e);
 		}
 
 	}
@@ -217,6 +412,29 @@ public class Configuration {
 		originalDirectory = null;
 		originalRepositoryURL = null;
 		outputEnabled = false;
+		streamingCoverageParserEnabled = true;
+		diffParallelism = 1;
+		gitChangedFilesEnabled = false;
+		gitCacheDirectory = null;
+		gitCacheSize = 4096L * 1024 * 1024;
+		inProcessGitEnabled = false;
+		gitSourcesEnabled = false;
+		shallowDepth = 0;
+		sparsePaths = null;
+		coverageCacheDirectory = null;
+		cleanUpEnabled = true;
+		mavenArguments = new ArrayList<String>();
+		mavenLogDirectory = null;
+		mavenTimeout = 0;
+		gitTimeout = 0;
+		mavenRepository = null;
+		mavenOfflineEnabled = false;
+		mavenCommand = "mvn";
+		selectiveBuildEnabled = false;
+		cpuBudget = Runtime.getRuntime().availableProcessors();
+		mavenThreads = 1;
+		surefireForkCount = -1;
+		surefireParallel = null;
 	}
 
 	
@@ -236,23 +454,84 @@ public class Configuration {
 
 			repositoryDirectory = Git.clone(repositoryURL);
 		
-			if (branchName != null) {
-				Git.checkout(repositoryDirectory, branchName);
-			}
-			
-			if (commitID != null) {
-				Git.checkout(repositoryDirectory, commitID);
-			}
+			checkoutThroughGit(repositoryDirectory, branchName, commitID);
 		}
 		
 		return repositoryDirectory;
 	}
+	
+	/**
+	 * Check out the branch and then the commit, if given, in the repository directory
+	 * @param repositoryDirectory
+	 * @param branchName
+	 * @param commitID
+	 * @throws Exception
+	 */
+	private static void checkoutThroughGit(String repositoryDirectory, String branchName, String commitID) throws Exception {
+		if (branchName != null) {
+			Git.checkout(repositoryDirectory, branchName);
+		}
+		
+		if (commitID != null) {
+			Git.checkout(repositoryDirectory, commitID);
+		}
+	}
+	
+	/**
+	 * Set up the original and/or revised directories by only fetching the needed revisions, limited to the
+	 * shallow depth and sparse paths. A commit id takes precedence over the branch name of a revision.
+	 * @throws Exception
+	 */
+	private static void setUpPartialDirectoriesThroughGit() throws Exception {
+		String originalRevision = originalCommitID != null ? originalCommitID : originalBranchName;
+		String revisedRevision = revisedCommitID != null ? revisedCommitID : revisedBranchName;
+		
+		if (originalDirectory == null && revisedDirectory == null && originalRepositoryURL != null && originalRepositoryURL.equals(revisedRepositoryURL)) {
+			// Fetch both revisions into a single repository and add a worktree for the revised revision
+			String repositoryDirectory = Git.cloneRevisions(originalRepositoryURL, originalRevision, revisedRevision);
+			String worktreeDirectory = Git.addWorktree(repositoryDirectory, null, Git.getClonedRevision(revisedRevision));
+			Git.checkout(repositoryDirectory, Git.getClonedRevision(originalRevision));
+			
+			Configuration.setOriginalDirectory(repositoryDirectory);
+			Configuration.setRevisedDirectory(worktreeDirectory);
+			return;
+		}
+		
+		if (originalDirectory == null && originalRepositoryURL != null) {
+			String repositoryDirectory = Git.cloneRevisions(originalRepositoryURL, originalRevision);
+			Git.checkout(repositoryDirectory, Git.getClonedRevision(originalRevision));
+			Configuration.setOriginalDirectory(repositoryDirectory);
+		}
+		
+		if (revisedDirectory == null && revisedRepositoryURL != null) {
+			String repositoryDirectory = Git.cloneRevisions(revisedRepositoryURL, revisedRevision);
+			Git.checkout(repositoryDirectory, Git.getClonedRevision(revisedRevision));
+			Configuration.setRevisedDirectory(repositoryDirectory);
+		}
+	}
+	
 	/**
 	 * Set up the original and/or revised directories according to the provided arguments
 	 * @throws Exception 
 	 */
 	public static void setUpDirectoriesThroughGit()  {
 		try {
+			if (shallowDepth > 0 || sparsePaths != null) {
+				setUpPartialDirectoriesThroughGit();
+			}
+			
+			if (Configuration.getOriginalDirectory() == null && Configuration.getRevisedDirectory() == null 
+					&& Configuration.getOriginalRepositoryURL() != null && Configuration.getOriginalRepositoryURL().equals(Configuration.getRevisedRepositoryURL())) {
+				// Both revisions are in the same repository, so clone it once and check out the revised revision in a worktree.
+				// The worktree is added first, as the revised revision may be relative to the cloned HEAD
+				String repositoryDirectory = Git.clone(Configuration.getOriginalRepositoryURL());
+				String worktreeDirectory = Git.addWorktree(repositoryDirectory, Configuration.getRevisedBranchName(), Configuration.getRevisedCommitID());
+				checkoutThroughGit(repositoryDirectory, Configuration.getOriginalBranchName(), Configuration.getOriginalCommitID());
+				
+				Configuration.setOriginalDirectory(repositoryDirectory);
+				Configuration.setRevisedDirectory(worktreeDirectory);
+			}
+			
 			if (Configuration.getOriginalDirectory() == null) {
 				Configuration.setOriginalDirectory(setUpDirectoriesThroughGit(Configuration.getOriginalRepositoryURL(), Configuration.getOriginalBranchName(), Configuration.getOriginalCommitID()));
 			}
@@ -260,10 +539,12 @@ public class Configuration {
 			if (Configuration.getRevisedDirectory() == null) {
 				Configuration.setRevisedDirectory(setUpDirectoriesThroughGit(Configuration.getRevisedRepositoryURL(), Configuration.getRevisedBranchName(), Configuration.getRevisedCommitID()));
 			}
+		} catch(TimeoutException e) {
+			throw new OperiasException(OperiasStatus.TIMEOUT, e.getMessage(), e);
+		} catch(CancellationException e) {
+			throw new OperiasException(OperiasStatus.CANCELLED, "Setting up directory through git was cancelled", e);
 		} catch(Exception e) {
-			e.printStackTrace();
-			Main.printLine("[Error] Error setting up directory through git");
-			System.exit(OperiasStatus.INVALID_ARGUMENTS.ordinal());
+			throw new OperiasException(OperiasStatus.INVALID_ARGUMENTS, "Error setting up directory through git", e);
 		}
 	}
 	
@@ -398,4 +679,355 @@ public class Configuration {
 	public static void setOutputEnabled(boolean outputEnabled) {
 		Configuration.outputEnabled = outputEnabled;
 	}
+
+	/**
+	 * @return the streamingCoverageParserEnabled
+	 */
+	public static boolean isStreamingCoverageParserEnabled() {
+		return streamingCoverageParserEnabled;
+	}
+
+	/**
+	 * @param streamingCoverageParserEnabled the streamingCoverageParserEnabled to set
+	 */
+	public static void setStreamingCoverageParserEnabled(boolean streamingCoverageParserEnabled) {
+		Configuration.streamingCoverageParserEnabled = streamingCoverageParserEnabled;
+	}
+
+	/**
+	 * @return the diffParallelism
+	 */
+	public static int getDiffParallelism() {
+		return diffParallelism;
+	}
+
+	/**
+	 * @param diffParallelism the diffParallelism to set, must be at least 1
+	 */
+	public static void setDiffParallelism(int diffParallelism) {
+		if (diffParallelism < 1) {
+			throw new InvalidParameterException("Error: the diff parallelism must be at least 1");
+		}
+		Configuration.diffParallelism = diffParallelism;
+	}
+
+	/**
+	 * @return the gitChangedFilesEnabled
+	 */
+	public static boolean isGitChangedFilesEnabled() {
+		return gitChangedFilesEnabled;
+	}
+
+	/**
+	 * @param gitChangedFilesEnabled the gitChangedFilesEnabled to set
+	 */
+	public static void setGitChangedFilesEnabled(boolean gitChangedFilesEnabled) {
+		Configuration.gitChangedFilesEnabled = gitChangedFilesEnabled;
+	}
+
+	/**
+	 * @return the gitCacheDirectory
+	 */
+	public static String getGitCacheDirectory() {
+		return gitCacheDirectory;
+	}
+
+	/**
+	 * @param gitCacheDirectory the gitCacheDirectory to set, null to disable the cache
+	 */
+	public static void setGitCacheDirectory(String gitCacheDirectory) {
+		Configuration.gitCacheDirectory = gitCacheDirectory == null ? null : new File(gitCacheDirectory).getAbsolutePath();
+	}
+
+	/**
+	 * @return the gitCacheSize in bytes
+	 */
+	public static long getGitCacheSize() {
+		return gitCacheSize;
+	}
+
+	/**
+	 * @param gitCacheSize the gitCacheSize to set in bytes, must not be negative
+	 */
+	public static void setGitCacheSize(long gitCacheSize) {
+		if (gitCacheSize < 0) {
+			throw new InvalidParameterException("Error: the git cache size must not be negative");
+		}
+		Configuration.gitCacheSize = gitCacheSize;
+	}
+
+	/**
+	 * @return the inProcessGitEnabled
+	 */
+	public static boolean isInProcessGitEnabled() {
+		return inProcessGitEnabled;
+	}
+
+	/**
+	 * @param inProcessGitEnabled the inProcessGitEnabled to set
+	 */
+	public static void setInProcessGitEnabled(boolean inProcessGitEnabled) {
+		Configuration.inProcessGitEnabled = inProcessGitEnabled;
+	}
+
+	/**
+	 * @return the gitSourcesEnabled
+	 */
+	public static boolean isGitSourcesEnabled() {
+		return gitSourcesEnabled;
+	}
+
+	/**
+	 * @param gitSourcesEnabled the gitSourcesEnabled to set
+	 */
+	public static void setGitSourcesEnabled(boolean gitSourcesEnabled) {
+		Configuration.gitSourcesEnabled = gitSourcesEnabled;
+	}
+
+	/**
+	 * @return the shallowDepth
+	 */
+	public static int getShallowDepth() {
+		return shallowDepth;
+	}
+
+	/**
+	 * @param shallowDepth the shallowDepth to set, 0 to clone the complete history
+	 */
+	public static void setShallowDepth(int shallowDepth) {
+		if (shallowDepth < 0) {
+			throw new InvalidParameterException("Error: the shallow depth must not be negative");
+		}
+		Configuration.shallowDepth = shallowDepth;
+	}
+
+	/**
+	 * @return the sparsePaths
+	 */
+	public static List<String> getSparsePaths() {
+		return sparsePaths;
+	}
+
+	/**
+	 * @param sparsePaths the sparsePaths to set, null to check out all files
+	 */
+	public static void setSparsePaths(List<String> sparsePaths) {
+		Configuration.sparsePaths = sparsePaths;
+	}
+
+	/**
+	 * @return the coverageCacheDirectory, null if the coverage results are not cached
+	 */
+	public static String getCoverageCacheDirectory() {
+		return coverageCacheDirectory;
+	}
+
+	/**
+	 * @param coverageCacheDirectory the coverageCacheDirectory to set, null to disable the cache
+	 */
+	public static void setCoverageCacheDirectory(String coverageCacheDirectory) {
+		Configuration.coverageCacheDirectory = coverageCacheDirectory == null ? null : new File(coverageCacheDirectory).getAbsolutePath();
+	}
+
+	/**
+	 * @return the cleanUpEnabled
+	 */
+	public static boolean isCleanUpEnabled() {
+		return cleanUpEnabled;
+	}
+
+	/**
+	 * @param cleanUpEnabled the cleanUpEnabled to set
+	 */
+	public static void setCleanUpEnabled(boolean cleanUpEnabled) {
+		Configuration.cleanUpEnabled = cleanUpEnabled;
+	}
+
+	/**
+	 * @return the mavenArguments
+	 */
+	public static List<String> getMavenArguments() {
+		return mavenArguments;
+	}
+
+	/**
+	 * @param mavenArguments the mavenArguments to set, empty arguments are ignored
+	 */
+	public static void setMavenArguments(List<String> mavenArguments) {
+		Configuration.mavenArguments = new ArrayList<String>();
+		for(String argument : mavenArguments) {
+			if (!argument.isEmpty()) {
+				Configuration.mavenArguments.add(argument);
+			}
+		}
+	}
+
+	/**
+	 * @return the mavenLogDirectory, null if the output of maven is not kept
+	 */
+	public static String getMavenLogDirectory() {
+		return mavenLogDirectory;
+	}
+
+	/**
+	 * @param mavenLogDirectory the mavenLogDirectory to set, null to not keep the output of maven
+	 */
+	public static void setMavenLogDirectory(String mavenLogDirectory) {
+		Configuration.mavenLogDirectory = mavenLogDirectory == null ? null : new File(mavenLogDirectory).getAbsolutePath();
+	}
+
+	/**
+	 * @return the mavenTimeout in seconds, 0 if there is no limit
+	 */
+	public static long getMavenTimeout() {
+		return mavenTimeout;
+	}
+
+	/**
+	 * @param mavenTimeout the mavenTimeout to set in seconds, 0 for no limit
+	 */
+	public static void setMavenTimeout(long mavenTimeout) {
+		if (mavenTimeout < 0) {
+			throw new InvalidParameterException("Error: the maven timeout must not be negative");
+		}
+		Configuration.mavenTimeout = mavenTimeout;
+	}
+
+	/**
+	 * @return the gitTimeout in seconds, 0 if there is no limit
+	 */
+	public static long getGitTimeout() {
+		return gitTimeout;
+	}
+
+	/**
+	 * @param gitTimeout the gitTimeout to set in seconds, 0 for no limit
+	 */
+	public static void setGitTimeout(long gitTimeout) {
+		if (gitTimeout < 0) {
+			throw new InvalidParameterException("Error: the git timeout must not be negative");
+		}
+		Configuration.gitTimeout = gitTimeout;
+	}
+
+	/**
+	 * @return the mavenRepository, null if maven uses the local repository in the settings of the user
+	 */
+	public static String getMavenRepository() {
+		return mavenRepository;
+	}
+
+	/**
+	 * @param mavenRepository the mavenRepository to set, null to use the local repository in the settings of the user
+	 */
+	public static void setMavenRepository(String mavenRepository) {
+		Configuration.mavenRepository = mavenRepository == null ? null : new File(mavenRepository).getAbsolutePath();
+	}
+
+	/**
+	 * @return the mavenOfflineEnabled
+	 */
+	public static boolean isMavenOfflineEnabled() {
+		return mavenOfflineEnabled;
+	}
+
+	/**
+	 * @param mavenOfflineEnabled the mavenOfflineEnabled to set
+	 */
+	public static void setMavenOfflineEnabled(boolean mavenOfflineEnabled) {
+		Configuration.mavenOfflineEnabled = mavenOfflineEnabled;
+	}
+
+	/**
+	 * @return the mavenCommand
+	 */
+	public static String getMavenCommand() {
+		return mavenCommand;
+	}
+
+	/**
+	 * @param mavenCommand the mavenCommand to set, such as mvn or mvnd
+	 */
+	public static void setMavenCommand(String mavenCommand) {
+		Configuration.mavenCommand = mavenCommand;
+	}
+
+	/**
+	 * @return the selectiveBuildEnabled
+	 */
+	public static boolean isSelectiveBuildEnabled() {
+		return selectiveBuildEnabled;
+	}
+
+	/**
+	 * @param selectiveBuildEnabled the selectiveBuildEnabled to set
+	 */
+	public static void setSelectiveBuildEnabled(boolean selectiveBuildEnabled) {
+		Configuration.selectiveBuildEnabled = selectiveBuildEnabled;
+	}
+
+	/**
+	 * @return the cpuBudget
+	 */
+	public static int getCpuBudget() {
+		return cpuBudget;
+	}
+
+	/**
+	 * @param cpuBudget the cpuBudget to set, must be at least 1
+	 */
+	public static void setCpuBudget(int cpuBudget) {
+		if (cpuBudget < 1) {
+			throw new InvalidParameterException("Error: the cpu budget must be at least 1");
+		}
+		Configuration.cpuBudget = cpuBudget;
+	}
+
+	/**
+	 * @return the mavenThreads, 0 if the share in the cpu budget is used
+	 */
+	public static int getMavenThreads() {
+		return mavenThreads;
+	}
+
+	/**
+	 * @param mavenThreads the mavenThreads to set, 0 to use the share in the cpu budget
+	 */
+	public static void setMavenThreads(int mavenThreads) {
+		if (mavenThreads < 0) {
+			throw new InvalidParameterException("Error: the number of maven threads must not be negative");
+		}
+		Configuration.mavenThreads = mavenThreads;
+	}
+
+	/**
+	 * @return the surefireForkCount, 0 if the share in the cpu budget is used and -1 if the configuration of the project is used
+	 */
+	public static int getSurefireForkCount() {
+		return surefireForkCount;
+	}
+
+	/**
+	 * @param surefireForkCount the surefireForkCount to set, 0 to use the share in the cpu budget and -1 to use the configuration of the project
+	 */
+	public static void setSurefireForkCount(int surefireForkCount) {
+		if (surefireForkCount < -1) {
+			throw new InvalidParameterException("Error: the surefire fork count must not be negative");
+		}
+		Configuration.surefireForkCount = surefireForkCount;
+	}
+
+	/**
+	 * @return the surefireParallel
+	 */
+	public static String getSurefireParallel() {
+		return surefireParallel;
+	}
+
+	/**
+	 * @param surefireParallel the surefireParallel to set, such as classes, methods or both
+	 */
+	public static void setSurefireParallel(String surefireParallel) {
+		Configuration.surefireParallel = surefireParallel;
+	}
 }
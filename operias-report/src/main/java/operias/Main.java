@@ -12,6 +12,11 @@ import org.apache.commons.io.FileUtils;
  */
 public class Main {
 	
+	/**
+	 * Held for the whole of a run, the configuration and the cpu budget are shared by all runs within the JVM
+	 */
+	private static final Object runLock = new Object();
+	
 	/**
 	 * Start up the operias tool
 	 * @param args Contains serveral arguments, for example the source directories which
@@ -21,25 +26,76 @@ public class Main {
 	 * 
 	 */
 	public static void main(String[] args) {
+		try {
+			run(args);
+		} catch (OperiasException e) {
+			Main.printLine("[Error] " + e.getMessage());
+			System.exit(e.getStatus().ordinal());
+		}
+	}
+	
+	/**
+	 * Run the operias tool without exiting the JVM, so it can be run several times within the same JVM.
+	 * Runs started at the same time are executed one after another
+	 * @param args The command line arguments
+	 * @throws OperiasException If the execution failed, containing the reason
+	 */
+	public static void run(String[] args) {
+		run(args, new ProcessControl());
+	}
+	
+	/**
+	 * Run the operias tool without exiting the JVM, the run can be cancelled through its process control.
+	 * The configuration and the cpu budget are static, so runs started at the same time are executed one after
+	 * another. A run which is cancelled while waiting for another run does not start
+	 * @param args The command line arguments
+	 * @param processControl Control of the processes started by this run
+	 * @throws OperiasException If the execution failed, containing the reason
+	 */
+	public static void run(String[] args, ProcessControl processControl) {
+		synchronized (runLock) {
+			if (processControl.isCancelled()) {
+				throw new OperiasException(OperiasStatus.CANCELLED, "The execution of operias was cancelled");
+			}
+			
+			execute(args, processControl);
+		}
+	}
+	
+	/**
+	 * Execute a run of the operias tool, while no other run is executed
+	 * @param args The command line arguments
+	 * @param processControl Control of the processes started by this run
+	 * @throws OperiasException If the execution failed, containing the reason
+	 */
+	private static void execute(String[] args, ProcessControl processControl) {
 		
+		// Nothing is kept from a previous run within the same JVM, such as its directories which were removed afterwards
+		Configuration.resetConfiguration();
 		Configuration.parseArguments(args);
-
 		
-		// Check if the directories were set
-		if (Configuration.getOriginalDirectory() == null || Configuration.getRevisedDirectory() == null) {
-			// if not, try to set up directories through git
-			Configuration.setUpDirectoriesThroughGit();
-		}
-		
-		new Operias().constructReport().writeHTMLReport().writeXMLReport();
-
+		// Removed afterwards, even if the configuration has changed by then
+		File temporaryDirectory = new File(Configuration.getTemporaryDirectory());
 
-		Main.printLine("[Info] Cleaning up!");
-		// Remove temporary directory
+		ProcessControl.setCurrentRun(processControl);
 		try {
-			FileUtils.deleteDirectory(new File(Configuration.getTemporaryDirectory()));
-		} catch (IOException e) {
-			e.printStackTrace();
+			// Check if the directories were set
+			if (Configuration.getOriginalDirectory() == null || Configuration.getRevisedDirectory() == null) {
+				// if not, try to set up directories through git
+				Configuration.setUpDirectoriesThroughGit();
+			}
+			
+			new Operias().constructReport().writeHTMLReport().writeXMLReport();
+		} finally {
+			ProcessControl.setCurrentRun(null);
+			
+			Main.printLine("[Info] Cleaning up!");
+			// Remove temporary directory
+			try {
+				FileUtils.deleteDirectory(temporaryDirectory);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
 		}
 		
 		Main.printLine("[Info] Execution of operias was a great success!");
@@ -1,6 +1,13 @@
 package operias;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.TransformerException;
@@ -10,6 +17,7 @@ import operias.diff.DiffReport;
 import operias.output.html.HTMLReport;
 import operias.output.xml.XMLReport;
 import operias.report.OperiasReport;
+import operias.report.OriginalComparison;
 
 /**
  * Base class of the tool, where the information is combined and the reports and html sites are generated
@@ -32,59 +40,177 @@ public class Operias {
 	public Operias constructReport() {
 
 		if (Configuration.getOriginalDirectory() == null || Configuration.getRevisedDirectory() == null) {
-			Main.printLine("[Error] Missing either the original or the revised directory");
-			System.exit(OperiasStatus.MISSING_ARGUMENTS.ordinal());
+			throw new OperiasException(OperiasStatus.MISSING_ARGUMENTS, "Missing either the original or the revised directory");
 		}
 		
 		Main.printLine("[Info] Setting up threads");
-		// Construct the cobertura reports
-		Thread reportRevisedThread = new Thread("RevisedCoverage") { public void run() { reportRevised = constructCoberturaReport(Configuration.getRevisedDirectory());}};
-		Thread reportOriginalThread = new Thread("OriginalCoverage") { public void run() { reportOriginal = constructCoberturaReport(Configuration.getOriginalDirectory());}};
-		Thread reportFileDiffThread = new Thread("DiffReport") { public void run() {
+		// The original and revised project are built at the same time, so they share the processors
+		CpuBudget.setPlannedBuilds(2);
+		
+		// Construct the cobertura reports and the source diff, each on its own thread
+		final CompletableFuture<CoverageReport> originalFuture = supplyOnThread("OriginalCoverage", new Supplier<CoverageReport>() { public CoverageReport get() {
+			return constructCoberturaReport(Configuration.getOriginalDirectory(), "original");
+		}});
+		final CompletableFuture<CoverageReport> revisedFuture = supplyOnThread("RevisedCoverage", new Supplier<CoverageReport>() { public CoverageReport get() {
+			return constructRevisedCoberturaReport(originalFuture);
+		}});
+		final CompletableFuture<DiffReport> diffFuture = supplyOnThread("DiffReport", new Supplier<DiffReport>() { public DiffReport get() {
 			try {
-				reportFileDiff = new DiffReport(Configuration.getOriginalDirectory(), Configuration.getRevisedDirectory());
+				return new DiffReport(Configuration.getOriginalDirectory(), Configuration.getRevisedDirectory());
 			} catch (IOException e) {
-				Main.printLine("[Info] [" + Thread.currentThread().getName() + "] Error while comparing directory \"" +Configuration.getRevisedDirectory() + "\" to \"" + Configuration.getOriginalDirectory()+ "\"");
-			
-				System.exit(OperiasStatus.ERROR_FILE_DIFF_REPORT_GENERATION.ordinal());
+				throw new OperiasException(OperiasStatus.ERROR_FILE_DIFF_REPORT_GENERATION, "Error while comparing directory \"" +Configuration.getRevisedDirectory() + "\" to \"" + Configuration.getOriginalDirectory()+ "\"", e);
 			}
-		}};
+		}});
 		
-
-		Main.printLine("[Info] Starting threads");
-		reportRevisedThread.start();
-		reportOriginalThread.start();
-		reportFileDiffThread.start();
+		// The part of the comparison which only needs the original report and the source diff is made as soon as both are done,
+		// usually while the revised project is still being built. It is completed once the revised report is done as well,
+		// on the thread finishing last. The packages are then compared in parallel, as are the html pages written afterwards
+		CompletableFuture<OriginalComparison> comparisonFuture = originalFuture.thenCombine(diffFuture, new BiFunction<CoverageReport, DiffReport, OriginalComparison>() {
+			public OriginalComparison apply(CoverageReport original, DiffReport diff) {
+				Main.printLine("[Info] [" + Thread.currentThread().getName() + "] Start to compare the original report to the source diff");
+				return new OriginalComparison(original, diff);
+			}
+		});
+		CompletableFuture<OperiasReport> reportFuture = comparisonFuture.thenCombine(revisedFuture, new BiFunction<OriginalComparison, CoverageReport, OperiasReport>() {
+			public OperiasReport apply(OriginalComparison comparison, CoverageReport revised) {
+				reportOriginal = comparison.getOriginalReport();
+				reportRevised = revised;
+				reportFileDiff = comparison.getSourceDiffReport();
+				
+				Main.printLine("[Info] [" + Thread.currentThread().getName() + "] Start to combine reports");
+				return new OperiasReport(comparison, revised);
+			}
+		});
 		
 		try {
-			reportRevisedThread.join();
-			reportOriginalThread.join();
-			reportFileDiffThread.join();
-		} catch (InterruptedException e1) {
-			System.exit(OperiasStatus.ERROR_THREAD_JOINING.ordinal());
+			report = reportFuture.join();
+		} catch (CompletionException e) {
+			throw getFailure(e);
 		}
-		Main.printLine("[Info] Start to combine reports");
-		
-		report = new OperiasReport(reportOriginal, reportRevised, reportFileDiff);
 		
 		return this;
 	}
 	
 	/**
-	 * Construct a cobertura coverage report for the given directory
+	 * Construct the cobertura coverage report of the revised directory. With selective builds, only the changed modules and
+	 * the modules depending on them are built, the coverage of the other modules is taken from the original report
+	 * @param originalFuture The original report, once it is constructed
+	 * @return A cobertura report containing coverage metrics
+	 */
+	private CoverageReport constructRevisedCoberturaReport(CompletableFuture<CoverageReport> originalFuture) {
+		String originalDirectory = Configuration.getOriginalDirectory();
+		String revisedDirectory = Configuration.getRevisedDirectory();
+		
+		List<String> changedModules = null;
+		if (Configuration.isSelectiveBuildEnabled()) {
+			try {
+				changedModules = ModuleCoverage.getChangedModules(originalDirectory, revisedDirectory);
+			} catch (Exception e) {
+				Main.printLine("[Warning] [" + Thread.currentThread().getName() + "] Could not determine the changed modules, building all modules: " + e.getMessage());
+			}
+		}
+		
+		if (changedModules == null) {
+			return constructCoberturaReport(revisedDirectory, "revised");
+		}
+		
+		CoverageReport builtReport = ModuleCoverage.merge(new ArrayList<CoverageReport>());
+		if (changedModules.isEmpty()) {
+			Main.printLine("[Info] [" + Thread.currentThread().getName() + "] No module changed, using the coverage of the original modules");
+			CpuBudget.cancelPlannedBuild();
+		} else {
+			Main.printLine("[Info] [" + Thread.currentThread().getName() + "] Building the changed modules " + changedModules + " and the modules depending on them");
+			
+			// The results only cover some of the modules, so they are not stored in the coverage cache
+			Cobertura cobertura = new Cobertura(revisedDirectory);
+			cobertura.setModules(changedModules);
+			if (Configuration.getMavenLogDirectory() != null) {
+				cobertura.setLogFile(new File(Configuration.getMavenLogDirectory(), "maven-revised.log"));
+			}
+			
+			builtReport = cobertura.executeCobertura();
+			if (builtReport == null) {
+				throw new OperiasException(OperiasStatus.ERROR_COBERTURA_TASK_EXECUTION, "Cobertura could not be executed on \"" + revisedDirectory + "\"");
+			}
+		}
+		
+		try {
+			return ModuleCoverage.combine(builtReport, originalFuture.join(), originalDirectory, revisedDirectory, changedModules);
+		} catch (CompletionException e) {
+			throw getFailure(e);
+		} catch (IOException e) {
+			throw new OperiasException(OperiasStatus.ERROR_COBERTURA_TASK_EXECUTION, "Could not combine the coverage of the modules: " + e.getMessage(), e);
+		}
+	}
+	
+	/**
+	 * Compute a value on a new thread, the thread name is used in the output of the computation
+	 * @param threadName Name of the thread
+	 * @param supplier Computation of the value
+	 * @return Future which is completed with the value once the computation finished
+	 */
+	private static <T> CompletableFuture<T> supplyOnThread(String threadName, final Supplier<T> supplier) {
+		final CompletableFuture<T> future = new CompletableFuture<T>();
+		new Thread(threadName) { public void run() {
+			try {
+				future.complete(supplier.get());
+			} catch (Throwable e) {
+				future.completeExceptionally(e);
+			}
+		}}.start();
+		
+		return future;
+	}
+	
+	/**
+	 * Get the failure which caused a computation on another thread to fail
+	 * @param e Exception thrown when waiting for the computation
+	 * @return The failure of the computation, or a failure to join the threads if the computation failed unexpectedly
+	 */
+	private static OperiasException getFailure(CompletionException e) {
+		if (e.getCause() instanceof OperiasException) {
+			return (OperiasException) e.getCause();
+		}
+		
+		return new OperiasException(OperiasStatus.ERROR_THREAD_JOINING, "Error while constructing the report: " + e.getCause(), e.getCause());
+	}
+	
+	/**
+	 * Construct a cobertura coverage report for the given directory, maven is not executed if the coverage cache contains the results
 	 * @param baseDirectory Directory containing the source code which needs to be checked for coverage
 	 * @param destinationDirectory Destination folder for the result
 	 * @param dataFile Data file used
+	 * @param revision Name of the revision, original or revised, used in the name of the maven log
 	 * @return A cobertura report containing coverage metrics
 	 */
-	private CoverageReport constructCoberturaReport(String baseDirectory) {
+	private CoverageReport constructCoberturaReport(String baseDirectory, String revision) {
+		
+		String cacheKey = null;
+		if (Configuration.getCoverageCacheDirectory() != null) {
+			try {
+				cacheKey = CoverageCache.getKey(baseDirectory);
+				CoverageReport cachedReport = CoverageCache.load(cacheKey, baseDirectory);
+				if (cachedReport != null) {
+					CpuBudget.cancelPlannedBuild();
+					Main.printLine("[Info] [" + Thread.currentThread().getName() + "] Using cached coverage results for \"" + baseDirectory + "\"");
+					return cachedReport;
+				}
+			} catch (Exception e) {
+				Main.printLine("[Warning] [" + Thread.currentThread().getName() + "] Could not use the coverage cache: " + e.getMessage());
+				cacheKey = null;
+			}
+		}
 		
 		Cobertura cobertura = new Cobertura(baseDirectory);
+		cobertura.setCacheKey(cacheKey);
+		if (Configuration.getMavenLogDirectory() != null) {
+			cobertura.setLogFile(new File(Configuration.getMavenLogDirectory(), "maven-" + revision + ".log"));
+		}
 		
 		CoverageReport report = cobertura.executeCobertura();
 		
 		if (report == null) {
-			System.exit(OperiasStatus.ERROR_COBERTURA_TASK_EXECUTION.ordinal());	
+			throw new OperiasException(OperiasStatus.ERROR_COBERTURA_TASK_EXECUTION, "Cobertura could not be executed on \"" + baseDirectory + "\"");
 		}
 		
 		return report;
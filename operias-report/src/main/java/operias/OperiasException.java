@@ -0,0 +1,44 @@
+package operias;
+
+/**
+ * Thrown when the execution of operias fails. The status tells why it failed, and is used as exit code when operias
+ * is started from the command line. Unlike exiting, the failure only ends the current run, so the JVM can start another run
+ * afterwards. Runs within the same JVM are executed one after another, see Main.run.
+ */
+public class OperiasException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Reason of the failure
+	 */
+	private final OperiasStatus status;
+
+	/**
+	 * Create a new failure
+	 * @param status Reason of the failure
+	 * @param message Description of the failure
+	 */
+	public OperiasException(OperiasStatus status, String message) {
+		super(message);
+		this.status = status;
+	}
+
+	/**
+	 * Create a new failure caused by another exception
+	 * @param status Reason of the failure
+	 * @param message Description of the failure
+	 * @param cause Exception which caused the failure
+	 */
+	public OperiasException(OperiasStatus status, String message, Throwable cause) {
+		super(message, cause);
+		this.status = status;
+	}
+
+	/**
+	 * @return the status
+	 */
+	public OperiasStatus getStatus() {
+		return status;
+	}
+}
@@ -107,5 +107,15 @@ public enum OperiasStatus {
 	/**
 	 * Invalid xml in a surefire report
 	 */
-	ERROR_SUREFIRE_INVALID_XML;
+	ERROR_SUREFIRE_INVALID_XML, 
+	
+	/**
+	 * A maven or git process did not finish within its timeout
+	 */
+	TIMEOUT, 
+	
+	/**
+	 * The execution was cancelled
+	 */
+	CANCELLED;
 }
@@ -0,0 +1,213 @@
+package operias;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+
+/**
+ * Starts and waits for the maven and git processes of a single run of operias. Waiting is limited by a timeout,
+ * and all running processes of a run can be cancelled at once, without affecting other runs within the same JVM.
+ * A process that times out or is cancelled is killed together with all processes it started, such as the forked
+ * test JVMs of maven.
+ *
+ * The run of a thread is inherited by the threads it starts. Threads outside of a run share a default run,
+ * which is never cancelled.
+ */
+public class ProcessControl {
+
+	/**
+	 * Processes of all runs, which are killed when the JVM exits
+	 */
+	private static final Set<Process> allProcesses = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * True once the JVM is shutting down, no new processes are started for any run
+	 */
+	private static volatile boolean shuttingDown = false;
+
+	/**
+	 * Run used by threads which were not started within a run
+	 */
+	private static final ProcessControl defaultRun = new ProcessControl();
+
+	/**
+	 * Run of the current thread
+	 */
+	private static final InheritableThreadLocal<ProcessControl> currentRun = new InheritableThreadLocal<ProcessControl>();
+
+	static {
+		// Processes are not killed when the JVM exits, so kill them when operias is interrupted
+		Runtime.getRuntime().addShutdownHook(new Thread("ProcessCancellation") {
+			@Override
+			public void run() {
+				shuttingDown = true;
+
+				for(Process process : allProcesses) {
+					destroy(process);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Processes of this run which are currently running
+	 */
+	private final Set<Process> runningProcesses = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * True if this run was cancelled, no new processes are started for it
+	 */
+	private volatile boolean cancelled = false;
+
+	/**
+	 * Create the control of a new run
+	 */
+	public ProcessControl() {
+
+	}
+
+	/**
+	 * @return The run of the current thread, or the default run if the thread was not started within a run
+	 */
+	public static ProcessControl getCurrentRun() {
+		ProcessControl run = currentRun.get();
+		return run == null ? defaultRun : run;
+	}
+
+	/**
+	 * Set the run of the current thread, threads started afterwards by this thread belong to the same run
+	 * @param run The run, or null to return to the default run
+	 */
+	public static void setCurrentRun(ProcessControl run) {
+		if (run == null) {
+			currentRun.remove();
+		} else {
+			currentRun.set(run);
+		}
+	}
+
+	/**
+	 * Start a process
+	 * @param builder
+	 * @return The started process
+	 * @throws IOException If the process could not be started
+	 * @throws CancellationException If the run was cancelled
+	 */
+	public Process start(ProcessBuilder builder) throws IOException {
+		if (isCancelled()) {
+			throw new CancellationException("The execution of operias was cancelled");
+		}
+
+		Process process = builder.start();
+		runningProcesses.add(process);
+		allProcesses.add(process);
+
+		// The run may have been cancelled while the process was started
+		if (isCancelled()) {
+			release(process);
+			throw new CancellationException("The execution of operias was cancelled");
+		}
+
+		return process;
+	}
+
+	/**
+	 * Wait until a process started through this run ends. The process is killed if it does not end in time,
+	 * if the run is cancelled or if the waiting thread is interrupted.
+	 * @param process
+	 * @param timeout Maximum time to wait in seconds, 0 to wait without limit
+	 * @param description Description of the process, used in the timeout message
+	 * @return The exit value of the process
+	 * @throws TimeoutException If the process did not end in time
+	 * @throws InterruptedException If the waiting thread was interrupted
+	 * @throws CancellationException If the run was cancelled
+	 */
+	public int waitFor(Process process, long timeout, String description) throws TimeoutException, InterruptedException {
+		try {
+			boolean finished;
+			if (timeout > 0) {
+				finished = process.waitFor(timeout, TimeUnit.SECONDS);
+			} else {
+				process.waitFor();
+				finished = true;
+			}
+
+			if (isCancelled()) {
+				throw new CancellationException("The execution of operias was cancelled");
+			}
+
+			if (!finished) {
+				throw new TimeoutException(description + " did not finish within " + timeout + " seconds");
+			}
+
+			return process.exitValue();
+		} finally {
+			release(process);
+		}
+	}
+
+	/**
+	 * Cancel this run, its running processes are killed and no new processes can be started for it
+	 */
+	public void cancel() {
+		cancelled = true;
+
+		for(Process process : runningProcesses) {
+			destroy(process);
+		}
+	}
+
+	/**
+	 * @return True if this run was cancelled
+	 */
+	public boolean isCancelled() {
+		return cancelled || shuttingDown;
+	}
+
+	/**
+	 * Stop tracking the process and kill it if it is still running
+	 * @param process
+	 */
+	private void release(Process process) {
+		runningProcesses.remove(process);
+		allProcesses.remove(process);
+		destroy(process);
+	}
+
+	/**
+	 * Kill the process and all its descendants, if it is still running.
+	 * The descendants are only known from Java 9, on Java 8 only the process itself is killed
+	 * @param process
+	 */
+	private static void destroy(Process process) {
+		if (!process.isAlive()) {
+			return;
+		}
+
+		// The descendants are collected first, they can not be found anymore once their parent is gone
+		try {
+			Method descendants = Process.class.getMethod("descendants");
+			Method destroyForcibly = Class.forName("java.lang.ProcessHandle").getMethod("destroyForcibly");
+
+			Object[] handles = ((Stream<?>) descendants.invoke(process)).toArray();
+			process.destroyForcibly();
+			for(Object handle : handles) {
+				destroyForcibly.invoke(handle);
+			}
+		} catch (ReflectiveOperationException e) {
+			process.destroyForcibly();
+		}
+
+		// Killing is asynchronous, wait until the process is gone so it no longer holds any files
+		try {
+			process.waitFor(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
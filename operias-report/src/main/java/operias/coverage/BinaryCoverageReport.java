@@ -0,0 +1,396 @@
+package operias.coverage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary format of a complete coverage report, which is much smaller and faster to read than the coverage xml.
+ *
+ * The format starts with a header and a table of all strings in the report, after which every name, message
+ * or other string is written as its index in the table. Counts, line numbers and hits are written as variable length
+ * integers and line numbers are written as the difference with the previous line of the class. Rates are written
+ * as doubles, so a report is read back exactly as it was written.
+ */
+public class BinaryCoverageReport {
+
+	/**
+	 * Static class, so private constructor
+	 */
+	private BinaryCoverageReport() {
+
+	}
+
+	/**
+	 * First bytes of every report, "OPCR"
+	 */
+	private static final int MAGIC = 0x4f504352;
+
+	/**
+	 * Version of the format, increased on every incompatible change
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * Line flag, set if the line contains a condition
+	 */
+	private static final int LINE_CONDITION = 1;
+
+	/**
+	 * Line flag, set if the condition on the line is completely covered
+	 */
+	private static final int LINE_CONDITION_COMPLETELY_COVERED = 2;
+
+	/**
+	 * Charset of the strings in the string table
+	 */
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * Write the report to a file
+	 * @param report Coverage report
+	 * @param file Destination file
+	 * @throws IOException
+	 */
+	public static void write(CoverageReport report, File file) throws IOException {
+		OutputStream outputStream = new FileOutputStream(file);
+		try {
+			write(report, outputStream);
+		} finally {
+			outputStream.close();
+		}
+	}
+
+	/**
+	 * Write the report to a stream, the stream is not closed
+	 * @param report Coverage report
+	 * @param outputStream
+	 * @throws IOException
+	 */
+	public static void write(CoverageReport report, OutputStream outputStream) throws IOException {
+		// The body is written first, as the string table is filled while writing it
+		StringTable strings = new StringTable();
+		ByteArrayOutputStream bodyStream = new ByteArrayOutputStream(64 * 1024);
+		DataOutputStream body = new DataOutputStream(bodyStream);
+		writeBody(report, body, strings);
+		body.flush();
+
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(outputStream, 64 * 1024));
+		output.writeInt(MAGIC);
+		writeVarInt(output, VERSION);
+
+		writeVarInt(output, strings.values.size());
+		for(String value : strings.values) {
+			byte[] bytes = value.getBytes(UTF8);
+			writeVarInt(output, bytes.length);
+			output.write(bytes);
+		}
+
+		bodyStream.writeTo(output);
+		output.flush();
+	}
+
+	/**
+	 * Write the rates, sources, packages and tests of the report
+	 * @param report
+	 * @param output
+	 * @param strings String table, to which the written strings are added
+	 * @throws IOException
+	 */
+	private static void writeBody(CoverageReport report, DataOutputStream output, StringTable strings) throws IOException {
+		output.writeDouble(report.getLineRate());
+		output.writeDouble(report.getConditionRate());
+
+		writeVarInt(output, report.getSources().size());
+		for(String source : report.getSources()) {
+			writeVarInt(output, strings.indexOf(source));
+		}
+
+		writeVarInt(output, report.getPackages().size());
+		for(CoberturaPackage cPackage : report.getPackages()) {
+			writeVarInt(output, strings.indexOf(cPackage.getName()));
+			output.writeDouble(cPackage.getLineRate());
+			output.writeDouble(cPackage.getConditionRate());
+
+			writeVarInt(output, cPackage.getClasses().size());
+			for(CoberturaClass cClass : cPackage.getClasses()) {
+				writeClass(output, cClass, strings);
+			}
+		}
+
+		writeVarInt(output, report.getAllTests().size());
+		for(TestReport test : report.getAllTests()) {
+			writeVarInt(output, strings.indexOf(test.getClassName()));
+			writeVarInt(output, strings.indexOf(test.getCaseName()));
+			writeVarInt(output, test.getResult().ordinal());
+			writeVarInt(output, strings.indexOf(test.getMessage()));
+			writeVarInt(output, strings.indexOf(test.getType()));
+			writeVarInt(output, strings.indexOf(test.getTrace()));
+		}
+	}
+
+	/**
+	 * Write a class with all its lines and conditions
+	 * @param output
+	 * @param cClass
+	 * @param strings
+	 * @throws IOException
+	 */
+	private static void writeClass(DataOutputStream output, CoberturaClass cClass, StringTable strings) throws IOException {
+		writeVarInt(output, strings.indexOf(cClass.getName()));
+		writeVarInt(output, strings.indexOf(cClass.getFileName()));
+		writeVarInt(output, strings.indexOf(cClass.getPackageName()));
+		output.writeDouble(cClass.getLineRate());
+		output.writeDouble(cClass.getConditionRate());
+
+		List<CoberturaLine> lines = cClass.getLines();
+		writeVarInt(output, lines.size());
+
+		// Lines are ordered by their number, so the difference with the previous line is always positive
+		int previousNumber = -1;
+		for(CoberturaLine line : lines) {
+			writeVarInt(output, line.getNumber() - previousNumber);
+			previousNumber = line.getNumber();
+
+			writeVarInt(output, line.getHits());
+
+			int flags = 0;
+			if (line.isCondition()) {
+				flags |= LINE_CONDITION;
+			}
+			if (line.isConditionCompletelyCovered()) {
+				flags |= LINE_CONDITION_COMPLETELY_COVERED;
+			}
+			output.writeByte(flags);
+
+			if (line.isCondition()) {
+				writeVarInt(output, line.getConditions().size());
+				for(CoberturaCondition condition : line.getConditions()) {
+					writeVarInt(output, condition.getNumber());
+					writeVarInt(output, strings.indexOf(condition.getType()));
+					writeVarInt(output, strings.indexOf(condition.getCoverage()));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Read a report from a file
+	 * @param file
+	 * @return The coverage report
+	 * @throws IOException If the file could not be read or is not a report in this format
+	 */
+	public static CoverageReport read(File file) throws IOException {
+		InputStream inputStream = new BufferedInputStream(new FileInputStream(file), 64 * 1024);
+		try {
+			return read(inputStream);
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	/**
+	 * Read a report from a stream. The stream is not closed and is not read beyond the end of the report,
+	 * so other data may follow it. The stream is read as it is, pass a buffered stream to read it efficiently.
+	 * @param inputStream
+	 * @return The coverage report
+	 * @throws IOException If the stream could not be read or does not contain a report in this format
+	 */
+	public static CoverageReport read(InputStream inputStream) throws IOException {
+		DataInputStream input = inputStream instanceof DataInputStream ? (DataInputStream) inputStream : new DataInputStream(inputStream);
+
+		if (input.readInt() != MAGIC) {
+			throw new IOException("Not a binary coverage report");
+		}
+		int version = readVarInt(input);
+		if (version != VERSION) {
+			throw new IOException("Unsupported binary coverage report version " + version);
+		}
+
+		// Index 0 is reserved for null
+		String[] strings = new String[readVarInt(input) + 1];
+		byte[] buffer = new byte[256];
+		for(int i = 1; i < strings.length; i++) {
+			int length = readVarInt(input);
+			if (length > buffer.length) {
+				buffer = new byte[Math.max(length, buffer.length * 2)];
+			}
+			input.readFully(buffer, 0, length);
+			strings[i] = new String(buffer, 0, length, UTF8);
+		}
+
+		CoverageReport report = new CoverageReport(input.readDouble(), input.readDouble());
+
+		int sourceCount = readVarInt(input);
+		for(int i = 0; i < sourceCount; i++) {
+			report.getSources().add(readString(input, strings));
+		}
+
+		int packageCount = readVarInt(input);
+		for(int i = 0; i < packageCount; i++) {
+			CoberturaPackage cPackage = new CoberturaPackage(readString(input, strings), input.readDouble(), input.readDouble());
+
+			int classCount = readVarInt(input);
+			for(int j = 0; j < classCount; j++) {
+				cPackage.addClass(readClass(input, strings));
+			}
+
+			report.addPackage(cPackage);
+		}
+
+		TestResultType[] resultTypes = TestResultType.values();
+		int testCount = readVarInt(input);
+		for(int i = 0; i < testCount; i++) {
+			String className = readString(input, strings);
+			String caseName = readString(input, strings);
+			int result = readVarInt(input);
+			if (result >= resultTypes.length) {
+				throw new IOException("Invalid test result " + result);
+			}
+
+			report.getAllTests().add(new TestReport(className, caseName, resultTypes[result], readString(input, strings), readString(input, strings), readString(input, strings)));
+		}
+
+		return report;
+	}
+
+	/**
+	 * Read a class with all its lines and conditions
+	 * @param input
+	 * @param strings
+	 * @return
+	 * @throws IOException
+	 */
+	private static CoberturaClass readClass(DataInputStream input, String[] strings) throws IOException {
+		String name = readString(input, strings);
+		String fileName = readString(input, strings);
+		String packageName = readString(input, strings);
+		CoberturaClass cClass = new CoberturaClass(name, fileName, packageName, input.readDouble(), input.readDouble());
+
+		int lineCount = readVarInt(input);
+		int number = -1;
+		for(int i = 0; i < lineCount; i++) {
+			number += readVarInt(input);
+			int hits = readVarInt(input);
+			int flags = input.readUnsignedByte();
+
+			boolean condition = (flags & LINE_CONDITION) != 0;
+			CoberturaLine line = new CoberturaLine(number, hits, condition, (flags & LINE_CONDITION_COMPLETELY_COVERED) != 0);
+
+			if (condition) {
+				int conditionCount = readVarInt(input);
+				for(int j = 0; j < conditionCount; j++) {
+					line.addCondition(new CoberturaCondition(readVarInt(input), readString(input, strings), readString(input, strings)));
+				}
+			}
+
+			cClass.addLine(line);
+		}
+
+		return cClass;
+	}
+
+	/**
+	 * Write an unsigned variable length integer, 7 bits per byte with the highest bit set on all but the last byte.
+	 * Negative values are written in 5 bytes
+	 * @param output
+	 * @param value
+	 * @throws IOException
+	 */
+	private static void writeVarInt(DataOutputStream output, int value) throws IOException {
+		while ((value & ~0x7f) != 0) {
+			output.writeByte((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		output.writeByte(value);
+	}
+
+	/**
+	 * Read an unsigned variable length integer
+	 * @param input
+	 * @return
+	 * @throws IOException
+	 */
+	private static int readVarInt(DataInputStream input) throws IOException {
+		int value = 0;
+		for(int shift = 0; shift < 35; shift += 7) {
+			int b = input.read();
+			if (b < 0) {
+				throw new EOFException();
+			}
+
+			value |= (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+
+		throw new IOException("Invalid variable length integer");
+	}
+
+	/**
+	 * Read a reference into the string table
+	 * @param input
+	 * @param strings
+	 * @return The string, or null
+	 * @throws IOException
+	 */
+	private static String readString(DataInputStream input, String[] strings) throws IOException {
+		int index = readVarInt(input);
+		if (index < 0 || index >= strings.length) {
+			throw new IOException("Invalid string index " + index);
+		}
+
+		return strings[index];
+	}
+
+	/**
+	 * Table of the distinct strings in a report, in order of their first occurrence
+	 */
+	private static class StringTable {
+
+		/**
+		 * Distinct strings, the string at position i has index i + 1
+		 */
+		private List<String> values = new ArrayList<String>();
+
+		/**
+		 * Indexes of the strings
+		 */
+		private Map<String, Integer> indexes = new HashMap<String, Integer>();
+
+		/**
+		 * Get the index of the string, the string is added to the table if it is not yet in the table
+		 * @param value
+		 * @return Index of the string, 0 for null
+		 */
+		public int indexOf(String value) {
+			if (value == null) {
+				return 0;
+			}
+
+			Integer index = indexes.get(value);
+			if (index == null) {
+				values.add(value);
+				index = values.size();
+				indexes.put(value, index);
+			}
+
+			return index;
+		}
+	}
+}
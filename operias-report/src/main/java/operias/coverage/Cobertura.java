@@ -2,9 +2,21 @@ package operias.coverage;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeoutException;
 
+import org.apache.commons.io.FileUtils;
+
+import operias.Configuration;
 import operias.Main;
+import operias.OperiasException;
 import operias.OperiasStatus;
+import operias.ProcessControl;
 
 /**
  * This class is used to execute cobertura for a maven project
@@ -23,6 +35,40 @@ public class Cobertura {
 	 */
 	private String outputDirectory;
 	
+	/**
+	 * Key under which the coverage results are stored in the coverage cache, null if they are not cached
+	 */
+	private String cacheKey;
+	
+	/**
+	 * File to which the output of maven is written, null if the output is not kept
+	 */
+	private File logFile;
+	
+	/**
+	 * Time spent in every phase of the maven build in milliseconds, empty until cobertura was executed
+	 */
+	private Map<String, Long> phaseDurations = new LinkedHashMap<String, Long>();
+	
+	/**
+	 * Modules which are built together with the modules depending on them, null to build the whole project
+	 */
+	private List<String> modules;
+	
+	/**
+	 * Time at which the last maven execution started
+	 */
+	private long buildStart;
+	
+	/**
+	 * Goals and properties passed to maven, the pom file is added when cobertura is executed
+	 */
+	private static final String[] COBERTURA_ARGUMENTS = { "-B", "clean", "cobertura:cobertura", "-Dcobertura.aggregate=true", "-Dcobertura.report.format=xml" };
+	
+	/**
+	 * Maven command used if the configured command can not be started
+	 */
+	private static final String DEFAULT_MAVEN_COMMAND = "mvn";
 	
 	public Cobertura(String directory) {
 		this.directory = directory;
@@ -37,6 +83,52 @@ public class Cobertura {
 		this.outputDirectory = outputDirectory;
 	}
 	
+	/**
+	 * Store the coverage results in the coverage cache after cobertura was executed
+	 * @param cacheKey Key of the project in the coverage cache, null to not store the results
+	 */
+	public void setCacheKey(String cacheKey) {
+		this.cacheKey = cacheKey;
+	}
+	
+	/**
+	 * Write the output of maven to a log file
+	 * @param logFile Log file, null to not keep the output
+	 */
+	public void setLogFile(File logFile) {
+		this.logFile = logFile;
+	}
+	
+	/**
+	 * Only build the given modules and the modules depending on them, instead of the whole project.
+	 * The report then only contains the coverage of the built modules
+	 * @param modules Paths of the modules relative to the project directory, null to build the whole project
+	 */
+	public void setModules(List<String> modules) {
+		this.modules = modules;
+	}
+	
+	/**
+	 * Get the time spent in every phase of the maven build, such as compile, instrumentation, test and report
+	 * @return Duration in milliseconds of every phase, in order of the first execution of the phase
+	 */
+	public Map<String, Long> getPhaseDurations() {
+		return phaseDurations;
+	}
+	
+	/**
+	 * Get a description of the maven execution, projects executed with a different description have different coverage results
+	 * @return The arguments passed to maven, apart from the pom file
+	 */
+	public static String getBuildSignature() {
+		StringBuilder signature = new StringBuilder("mvn");
+		for(String argument : getMavenArguments()) {
+			signature.append(' ').append(argument);
+		}
+		
+		return signature.toString();
+	}
+	
 	/**
 	 * Execute cobertura on the given directory,
 	 * we need to execute mvn cobertura:cobertura -Dcobertura.report.format=xml -f directory on the target directory.
@@ -51,18 +143,22 @@ public class Cobertura {
 
 				Main.printLine("[Info] [" + Thread.currentThread().getName() + "] Parsing Cobertura report");
 				CoverageReport coberturaReport = constructReport();
-				Main.printLine("[Info] [" + Thread.currentThread().getName() + "] Cleaning up after Cobertura");
+				if (cacheKey != null) {
+					storeInCache(coberturaReport);
+				}
 				cleanUp();
 				Main.printLine("[Info] [" + Thread.currentThread().getName() + "] Cobertura report finished");
 				return coberturaReport;
 			}
 			
 		} catch (IOException e) {
-			Main.printLine("[Error] [" + Thread.currentThread().getName() + "] Error during the execution sequence of Cobertura");
-			System.exit(OperiasStatus.ERROR_COBERTURA_TASK_CREATION.ordinal());
+			throw new OperiasException(OperiasStatus.ERROR_COBERTURA_TASK_CREATION, "Error during the execution sequence of Cobertura", e);
 		} catch (InterruptedException e) {
-			Main.printLine("[Error] [" + Thread.currentThread().getName() + "] Error during the execution sequence of Cobertura");
-			System.exit(OperiasStatus.ERROR_COBERTURA_TASK_CREATION.ordinal());
+			throw new OperiasException(OperiasStatus.ERROR_COBERTURA_TASK_CREATION, "Error during the execution sequence of Cobertura", e);
+		} catch (TimeoutException e) {
+			throw new OperiasException(OperiasStatus.TIMEOUT, e.getMessage(), e);
+		} catch (CancellationException e) {
+			throw new OperiasException(OperiasStatus.CANCELLED, "Execution of Cobertura was cancelled", e);
 		}
 		
 		return null;
@@ -73,8 +169,9 @@ public class Cobertura {
 	 * @return true if cobertura was succesfully executed, false otherwise
 	 * @throws IOException 
 	 * @throws InterruptedException 
+	 * @throws TimeoutException If maven did not finish within the maven timeout
 	 */
-	private boolean executeCoberturaTask() throws IOException, InterruptedException {
+	private boolean executeCoberturaTask() throws IOException, InterruptedException, TimeoutException {
 		boolean executionSucceeded = false;
 
 		File pomXML = new File(directory, "pom.xml");
@@ -84,25 +181,59 @@ public class Cobertura {
 			firstString = (new File(directory)).getCanonicalPath();
 			secondString = (new File("")).getCanonicalPath();
 		} catch (Exception e) {
-			Main.printLine("[Error] [" + Thread.currentThread().getName() + "] Error creating cobertura task");
-			System.exit(OperiasStatus.ERROR_COBERTURA_TASK_CREATION.ordinal());
+			throw new OperiasException(OperiasStatus.ERROR_COBERTURA_TASK_CREATION, "Error creating cobertura task", e);
 		}
 		
 		if (firstString.equals(secondString)) {
-			Main.printLine("[Error] [" + Thread.currentThread().getName() + "] Cannot execute cobertura on operias, infinite loop!");
-			System.exit(OperiasStatus.ERROR_COBERTURA_TASK_OPERIAS_EXECUTION.ordinal());
+			throw new OperiasException(OperiasStatus.ERROR_COBERTURA_TASK_OPERIAS_EXECUTION, "Cannot execute cobertura on operias, infinite loop!");
 		}
 		
 		
-		ProcessBuilder builder = new ProcessBuilder("mvn","clean", "cobertura:cobertura", "-Dcobertura.aggregate=true", "-Dcobertura.report.format=xml", "-f", pomXML.getAbsolutePath());
+		List<String> command = new ArrayList<String>();
+		command.add(Configuration.getMavenCommand());
+		command.addAll(getMavenArguments());
+		command.addAll(getRepositoryArguments());
+		command.addAll(getParallelismArguments());
+		if (modules != null) {
+			command.add("-pl");
+			command.add(String.join(",", modules));
+			command.add("-amd");
+		}
+		command.add("-f");
+		command.add(pomXML.getAbsolutePath());
+		ProcessBuilder builder = new ProcessBuilder(command);
+		builder.redirectErrorStream(true);
 
-		Process process = null;
-		process = builder.start();
+		buildStart = System.currentTimeMillis();
+		ProcessControl run = ProcessControl.getCurrentRun();
+		Process process;
+		try {
+			process = run.start(builder);
+		} catch (IOException e) {
+			if (command.get(0).equals(DEFAULT_MAVEN_COMMAND)) {
+				throw e;
+			}
+			
+			// For example the maven daemon is not installed, a plain maven build gives the same results
+			Main.printLine("[Warning] [" + Thread.currentThread().getName() + "] Could not start \"" + command.get(0) + "\", using " + DEFAULT_MAVEN_COMMAND + " instead");
+			command.set(0, DEFAULT_MAVEN_COMMAND);
+			process = run.start(builder.command(command));
+		}
 		
-		process.waitFor();
-
-		int exitValue = process.exitValue();
-		process.destroy();
+		// The output must be read while maven runs, otherwise maven blocks as soon as the pipe is full
+		MavenOutput output = new MavenOutput(process.getInputStream(), logFile);
+		Thread outputThread = new Thread(output, Thread.currentThread().getName() + "Output");
+		outputThread.setDaemon(true);
+		outputThread.start();
+		
+		int exitValue;
+		try {
+			exitValue = run.waitFor(process, Configuration.getMavenTimeout(), "Maven");
+		} finally {
+			outputThread.join();
+			phaseDurations = output.getPhaseDurations();
+			Main.printLine("[Info] [" + Thread.currentThread().getName() + "] Maven phases: " + output.getPhaseSummary());
+		}
 
 		executionSucceeded = exitValue == 0;
 		
@@ -121,29 +252,165 @@ public class Cobertura {
 	 * @return
 	 */
 	private CoverageReport constructReport() {
+		if (modules != null) {
+			return constructModulesReport();
+		}
+		
 		File coverageXML = new File(outputDirectory, "target/site/cobertura/coverage.xml");
 		
 		if (!coverageXML.exists()) {
-			Main.printLine("[Error] [" + Thread.currentThread().getName() + "] Coverage file was not found!");
-			System.exit(OperiasStatus.COVERAGE_XML_NOT_FOUND.ordinal());
+			throw new OperiasException(OperiasStatus.COVERAGE_XML_NOT_FOUND, "Coverage file was not found!");
 		}
 		
 		return new CoverageReport(coverageXML, outputDirectory + "/target/surefire-reports/").constructReport();
 	}
 	
 	/**
-	 * Clean the maven project
-	 * @throws InterruptedException 
+	 * Construct a report from the coverage.xml files of the modules which were built
+	 * @return A report containing the coverage of the built modules
+	 */
+	private CoverageReport constructModulesReport() {
+		List<String> projectModules = null;
+		try {
+			projectModules = ModuleCoverage.getModules(new File(outputDirectory));
+		} catch (Exception e) {
+			throw new OperiasException(OperiasStatus.COVERAGE_XML_NOT_FOUND, "Could not read the modules of \"" + outputDirectory + "\"", e);
+		}
+		
+		// Modules which were not built may still contain the coverage.xml of an earlier build, the file system may round down to seconds
+		List<CoverageReport> reports = new ArrayList<CoverageReport>();
+		for(String module : projectModules) {
+			File coverageXML = new File(outputDirectory, module + "/target/site/cobertura/coverage.xml");
+			if (coverageXML.isFile() && coverageXML.lastModified() >= buildStart / 1000 * 1000) {
+				reports.add(new CoverageReport(coverageXML, outputDirectory + "/" + module + "/target/surefire-reports/").constructReport());
+			}
+		}
+		
+		if (reports.isEmpty()) {
+			throw new OperiasException(OperiasStatus.COVERAGE_XML_NOT_FOUND, "Coverage file was not found!");
+		}
+		
+		return ModuleCoverage.merge(reports);
+	}
+	
+	/**
+	 * Get the arguments passed to maven, apart from the pom file
+	 * @return The cobertura goals and properties, followed by the additional arguments in the configuration
+	 */
+	private static List<String> getMavenArguments() {
+		List<String> arguments = new ArrayList<String>(Arrays.asList(COBERTURA_ARGUMENTS));
+		arguments.addAll(Configuration.getMavenArguments());
+		return arguments;
+	}
+	
+	/**
+	 * Get the arguments which configure how maven uses its local repository. They do not change the coverage results,
+	 * so they are not part of the build signature
+	 * @return The arguments for the configured local repository and offline mode
+	 */
+	private static List<String> getRepositoryArguments() {
+		List<String> arguments = new ArrayList<String>();
+		
+		if (Configuration.getMavenRepository() != null) {
+			arguments.add("-Dmaven.repo.local=" + Configuration.getMavenRepository());
+		}
+		
+		if (Configuration.isMavenOfflineEnabled()) {
+			arguments.add("-o");
+		}
+		
+		// The original and revised revision are built at the same time and share the local repository, so lock artifacts
+		// across processes while they are downloaded and read. Maven versions before 3.9 ignore these properties
+		arguments.add("-Daether.syncContext.named.factory=file-lock");
+		arguments.add("-Daether.syncContext.named.nameMapper=file-gav");
+		
+		return arguments;
+	}
+	
+	/**
+	 * Get the arguments which configure how many processors maven and surefire use. The values which are derived from the cpu budget
+	 * are divided over the levels of parallelism, so the modules, forks and test threads of a build together stay within its share.
+	 * Only the properties of surefire are set, so a surefire configuration in the pom of the project takes precedence
+	 * @return The arguments for the reactor threads, surefire forks and surefire test threads
+	 */
+	static List<String> getParallelismArguments() {
+		List<String> arguments = new ArrayList<String>();
+		int share = CpuBudget.getShare();
+		
+		// Always passed, as mvnd builds in parallel by default while a single thread keeps maven building sequentially
+		int threads = Configuration.getMavenThreads() == 0 ? share : Configuration.getMavenThreads();
+		arguments.add("-T");
+		arguments.add(threads + "");
+		
+		int forkCount = Configuration.getSurefireForkCount();
+		if (forkCount == 0) {
+			forkCount = Math.max(1, share / threads);
+		}
+		if (forkCount > 0) {
+			arguments.add("-DforkCount=" + forkCount);
+			arguments.add("-DreuseForks=true");
+		}
+		
+		if (Configuration.getSurefireParallel() != null) {
+			arguments.add("-Dparallel=" + Configuration.getSurefireParallel());
+			arguments.add("-DthreadCount=" + Math.max(1, share / (threads * Math.max(1, forkCount))));
+			arguments.add("-DperCoreThreadCount=false");
+		}
+		
+		return arguments;
+	}
+	
+	/**
+	 * Store the coverage results in the coverage cache, a failure only means the results will be computed again next time
+	 * @param report Coverage report of the project
+	 */
+	private void storeInCache(CoverageReport report) {
+		try {
+			CoverageCache.store(cacheKey, directory, report);
+		} catch (IOException e) {
+			Main.printLine("[Warning] [" + Thread.currentThread().getName() + "] Could not store the coverage results in the cache: " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Remove the build output of the maven project, by deleting the target directory of every module.
+	 * Nothing is removed if clean up is disabled or the project is within the temporary directory, which is removed at the end
 	 * @throws IOException 
 	 */
-	private boolean cleanUp() throws InterruptedException, IOException {
-		File pomXML = new File(directory, "pom.xml");
-		ProcessBuilder builder = new ProcessBuilder("mvn","clean", "-f", pomXML.getAbsolutePath());
+	private void cleanUp() throws IOException {
+		File projectDirectory = new File(directory).getCanonicalFile();
+		if (!Configuration.isCleanUpEnabled() || projectDirectory.toPath().startsWith(new File(Configuration.getTemporaryDirectory()).getCanonicalFile().toPath())) {
+			return;
+		}
+		
+		Main.printLine("[Info] [" + Thread.currentThread().getName() + "] Cleaning up after Cobertura");
+		deleteTargetDirectories(projectDirectory);
+	}
+	
+	/**
+	 * Delete the target directory of the module in the given directory and of all its submodules
+	 * @param moduleDirectory
+	 * @throws IOException
+	 */
+	private void deleteTargetDirectories(File moduleDirectory) throws IOException {
+		File[] files = moduleDirectory.listFiles();
+		if (files == null) {
+			return;
+		}
 		
-		Process process = builder.start();
-		process.waitFor();
-		int exitValue = process.exitValue();
-		process.destroy();			
-		return exitValue == 0;
+		boolean module = new File(moduleDirectory, "pom.xml").isFile();
+		for(File file : files) {
+			if (!file.isDirectory() || file.getName().startsWith(".")) {
+				continue;
+			}
+			
+			if (file.getName().equals("target")) {
+				if (module) {
+					FileUtils.deleteDirectory(file);
+				}
+			} else {
+				deleteTargetDirectories(file);
+			}
+		}
 	}
 }
@@ -1,10 +1,20 @@
 package operias.coverage;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
- * Holds information about the coverage of a certain class
+ * Holds information about the coverage of a certain class.
+ * 
+ * A line number is known at most once. Cobertura can report the same line more than once within a class,
+ * for example a line containing an anonymous or inner class. Such lines are merged into a single line
+ * of which the hits are added up and the conditions combined, the line is only completely covered if all
+ * its entries were.
  * @author soosterwaal
  *
  */
@@ -36,9 +46,49 @@ public class CoberturaClass {
 	private double branchRate;
 	
 	/**
-	 * A list of all lines within this class
+	 * Number of hits of each line, indexed by the line number
 	 */
-	private LinkedList<CoberturaLine> lines;
+	private int[] hits;
+	
+	/**
+	 * Line numbers for which coverage information is available
+	 */
+	private BitSet lines;
+	
+	/**
+	 * Line numbers which contain a condition
+	 */
+	private BitSet conditionLines;
+	
+	/**
+	 * Line numbers of which the conditions were completely covered
+	 */
+	private BitSet conditionsCompletelyCovered;
+	
+	/**
+	 * The conditions of the lines containing conditions, indexed by the line number
+	 */
+	private Map<Integer, List<CoberturaCondition>> conditions;
+	
+	/**
+	 * Amount of lines in this class
+	 */
+	private int lineCount;
+	
+	/**
+	 * The highest line number in this class
+	 */
+	private int maxLineNumber;
+	
+	/**
+	 * All lines of this class, constructed on the first request after a line was added
+	 */
+	private volatile List<CoberturaLine> lineList;
+	
+	/**
+	 * The same lines as in the line list, indexed by their line number
+	 */
+	private volatile CoberturaLine[] lineIndex;
 	
 	/**
 	 * Construct a cobertura class definition
@@ -53,31 +103,110 @@ public class CoberturaClass {
 		this.packageName = packageName;
 		this.lineRate = lineRate;
 		this.branchRate = branchRate;
-		this.lines = new LinkedList<CoberturaLine>();
+		this.hits = new int[0];
+		this.lines = new BitSet();
+		this.conditionLines = new BitSet();
+		this.conditionsCompletelyCovered = new BitSet();
+		this.conditions = new HashMap<Integer, List<CoberturaCondition>>();
+		this.lineCount = 0;
+		this.maxLineNumber = 0;
+		this.lineList = null;
+		this.lineIndex = null;
 	}
 	
 	/**
-	 * Add a new line to the class
+	 * Add a new line to the class. If the class already contains a line with the same number, for example the line
+	 * of an inner class, both lines are merged: their hits are added up and their conditions combined
 	 * @param line Cobertura coverage line
 	 */
 	public void addLine(CoberturaLine line) {
-		lines.add(line);
+		int lineNumber = line.getNumber();
+		
+		if (lineNumber < 0) {
+			return;
+		}
+		
+		if (lineNumber >= hits.length) {
+			hits = Arrays.copyOf(hits, Math.max(lineNumber + 1, hits.length * 2));
+		}
+		
+		if (lines.get(lineNumber)) {
+			hits[lineNumber] += line.getHits();
+		} else {
+			hits[lineNumber] = line.getHits();
+			lines.set(lineNumber);
+			lineCount++;
+		}
+		
+		if (line.isCondition()) {
+			if (conditionLines.get(lineNumber)) {
+				// Only completely covered if the conditions of both lines are
+				conditionsCompletelyCovered.set(lineNumber, conditionsCompletelyCovered.get(lineNumber) && line.isConditionCompletelyCovered());
+				conditions.get(lineNumber).addAll(line.getConditions());
+			} else {
+				conditionLines.set(lineNumber);
+				conditionsCompletelyCovered.set(lineNumber, line.isConditionCompletelyCovered());
+				conditions.put(lineNumber, new ArrayList<CoberturaCondition>(line.getConditions()));
+			}
+		}
+		
+		maxLineNumber = Math.max(maxLineNumber, lineNumber);
+		lineList = null;
+		lineIndex = null;
 	}
 	
 	/**
 	 * Get the information of the give line number
 	 * @param lineNumber
+	 * @return The line, or null if no information is available for the line number
 	 */
 	public CoberturaLine tryGetLine(int lineNumber) {
-		for(CoberturaLine line : lines) {
-			if (line.getNumber() == lineNumber) {
-				return line;
-			} else if (line.getNumber() > lineNumber) {
-				break;
-			}
+		if (!hasLine(lineNumber)) {
+			return null;
 		}
 		
-		return null;
+		CoberturaLine[] currentIndex = lineIndex;
+		
+		if (currentIndex == null) {
+			currentIndex = buildLines();
+		}
+		
+		return currentIndex[lineNumber];
+	}
+	
+	/**
+	 * Check if coverage information is available for the given line number
+	 * @param lineNumber
+	 * @return True if the line is known in this class
+	 */
+	public boolean hasLine(int lineNumber) {
+		return lineNumber >= 0 && lines.get(lineNumber);
+	}
+	
+	/**
+	 * Check if the given line contains a condition
+	 * @param lineNumber
+	 * @return True if the line is known and contains a condition
+	 */
+	public boolean isConditionLine(int lineNumber) {
+		return hasLine(lineNumber) && conditionLines.get(lineNumber);
+	}
+	
+	/**
+	 * Get the coverage of the given line number, without constructing a line instance
+	 * @param lineNumber
+	 * @return True if covered, false if not covered and null if no information is available for the line number
+	 */
+	public Boolean tryGetLineCoverage(int lineNumber) {
+		if (!hasLine(lineNumber)) {
+			return null;
+		}
+		
+		if (conditionLines.get(lineNumber)) {
+			return conditionsCompletelyCovered.get(lineNumber);
+		} else {
+			return hits[lineNumber] > 0;
+		}
 	}
 	
 
@@ -111,10 +240,46 @@ public class CoberturaClass {
 
 
 	/**
+	 * Get all lines of this class, ordered by their line number.
+	 * The list can not be modified, lines are added to the class through addLine
 	 * @return the lines
 	 */
 	public List<CoberturaLine> getLines() {
-		return lines;
+		List<CoberturaLine> currentLines = lineList;
+		
+		if (currentLines == null) {
+			buildLines();
+			currentLines = lineList;
+		}
+		
+		return currentLines;
+	}
+	
+	/**
+	 * Construct the line instances from the line information, they are kept until a line is added
+	 * @return The lines indexed by their line number
+	 */
+	private synchronized CoberturaLine[] buildLines() {
+		CoberturaLine[] newIndex = new CoberturaLine[maxLineNumber + 1];
+		List<CoberturaLine> newLines = new ArrayList<CoberturaLine>(lineCount);
+		
+		for(int lineNumber = lines.nextSetBit(0); lineNumber >= 0; lineNumber = lines.nextSetBit(lineNumber + 1)) {
+			boolean condition = conditionLines.get(lineNumber);
+			CoberturaLine line = new CoberturaLine(lineNumber, hits[lineNumber], condition, conditionsCompletelyCovered.get(lineNumber));
+			
+			if (condition) {
+				for(CoberturaCondition cCondition : conditions.get(lineNumber)) {
+					line.addCondition(cCondition);
+				}
+			}
+			
+			newIndex[lineNumber] = line;
+			newLines.add(line);
+		}
+		
+		lineIndex = newIndex;
+		lineList = Collections.unmodifiableList(newLines);
+		return newIndex;
 	}
 
 	/**
@@ -122,11 +287,7 @@ public class CoberturaClass {
 	 * @return
 	 */
 	public int getMaxLineNumber() {
-		if (lines.isEmpty()) {
-			return 0;
-		} else {
-			return lines.getLast().getNumber();
-		}
+		return maxLineNumber;
 	}
 
 	/**
@@ -144,10 +305,8 @@ public class CoberturaClass {
 	public int getConditionCount() {
 		int counter = 0;
 		
-		for(CoberturaLine line : lines) {
-			if (line.isCondition()) {
-				counter += line.getConditions().size();
-			}
+		for(List<CoberturaCondition> lineConditions : conditions.values()) {
+			counter += lineConditions.size();
 		}
 		
 		return counter;
@@ -158,7 +317,7 @@ public class CoberturaClass {
 	 * @return
 	 */
 	public int getLineCount() {
-		return lines.size();
+		return lineCount;
 	}
 
 }
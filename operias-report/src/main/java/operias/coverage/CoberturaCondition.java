@@ -6,19 +6,16 @@ public class CoberturaCondition {
 	/**
 	 * Number of the condition
 	 */
-	@SuppressWarnings("unused")
 	private int number;
 	
 	/**
 	 * Type of the condition
 	 */
-	@SuppressWarnings("unused")
 	private String type;
 	
 	/**
 	 * Percentage that the condition was covered
 	 */
-	@SuppressWarnings("unused")
 	private String coverage;
 	
 	
@@ -33,4 +30,25 @@ public class CoberturaCondition {
 		this.type = type;
 		this.coverage = coverage;
 	}
+
+	/**
+	 * @return the number
+	 */
+	public int getNumber() {
+		return number;
+	}
+
+	/**
+	 * @return the type
+	 */
+	public String getType() {
+		return type;
+	}
+
+	/**
+	 * @return the coverage
+	 */
+	public String getCoverage() {
+		return coverage;
+	}
 }
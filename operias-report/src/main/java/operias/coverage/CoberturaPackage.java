@@ -1,7 +1,9 @@
 package operias.coverage;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A package from the coverage xml file
@@ -29,6 +31,11 @@ public class CoberturaPackage {
 	 */
 	private List<CoberturaClass> classes;
 	
+	/**
+	 * The classes within this package, indexed by their name
+	 */
+	private Map<String, CoberturaClass> classIndex;
+	
 	/**
 	 * Construct a new cobertura package
 	 * @param name 	Name of the package
@@ -40,6 +47,7 @@ public class CoberturaPackage {
 		this.lineRate = lineRate;
 		this.branchRate = branchRate;
 		this.classes = new ArrayList<CoberturaClass>();
+		this.classIndex = new HashMap<String, CoberturaClass>();
 	}
 	
 	/**
@@ -48,6 +56,11 @@ public class CoberturaPackage {
 	 */
 	public void addClass(CoberturaClass _class) {
 		classes.add(_class);
+		
+		// The first class with a given name is the one found by getClass
+		if (!classIndex.containsKey(_class.getName())) {
+			classIndex.put(_class.getName(), _class);
+		}
 	}
 
 	/**
@@ -72,6 +85,7 @@ public class CoberturaPackage {
 	}
 
 	/**
+	 * Classes must be added through addClass, to keep the class index up to date
 	 * @return the classes
 	 */
 	public List<CoberturaClass> getClasses() {
@@ -84,13 +98,7 @@ public class CoberturaPackage {
 	 * @return
 	 */
 	public CoberturaClass getClass(String className) {
-		for(CoberturaClass cClass : classes) {
-			if (cClass.getName().equals(className)) {
-				return cClass;
-			}
-		}
-		
-		return null;
+		return classIndex.get(className);
 	}
 	
 	/**
@@ -101,7 +109,7 @@ public class CoberturaPackage {
 		int count = 0;
 		
 		for(CoberturaClass cClass : classes) {
-			count += cClass.getLines().size();
+			count += cClass.getLineCount();
 		}
 		
 		return count;
@@ -0,0 +1,197 @@
+package operias.coverage;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.UUID;
+
+import operias.Configuration;
+import operias.Main;
+import operias.git.Git;
+
+/**
+ * Persistent cache of coverage results. A project is identified by the git tree of its checkout,
+ * or by the content of its files if it is not a clean git checkout, together with the maven execution.
+ * Once the coverage of a project was computed, the same project is never built again,
+ * even when it is checked out in another directory.
+ *
+ * Every entry is a file containing the directory of the project the results were computed for, which is needed
+ * to move the sources to the directory of a later checkout, followed by the report in the binary coverage format.
+ */
+public class CoverageCache {
+
+	/**
+	 * Static class, so private constructor
+	 */
+	private CoverageCache() {
+
+	}
+
+	/**
+	 * Extension of the entries
+	 */
+	private static final String ENTRY_EXTENSION = ".coverage";
+
+	/**
+	 * Get the key of the project in the directory
+	 * @param directory Directory of the maven project
+	 * @return Hexadecimal SHA-1 hash identifying the sources and the maven execution
+	 * @throws Exception If the directory could not be read
+	 */
+	public static String getKey(String directory) throws Exception {
+		String treeID = null;
+		if (new File(directory, ".git").exists()) {
+			treeID = Git.getCleanTreeID(directory);
+		}
+
+		String source;
+		if (treeID != null) {
+			source = "tree " + treeID;
+		} else {
+			Main.printLine("[Info] [" + Thread.currentThread().getName() + "] Hashing the content of \"" + directory + "\"");
+			source = "content " + getContentHash(new File(directory));
+		}
+
+		String description = source + "\n" + Cobertura.getBuildSignature() + "\n" + Configuration.getSparsePaths();
+		return toHexadecimal(MessageDigest.getInstance("SHA-1").digest(description.getBytes("UTF-8")));
+	}
+
+	/**
+	 * Load the coverage results stored under the key
+	 * @param key Key of the project
+	 * @param directory Directory in which the project is located
+	 * @return The coverage report with its sources located in the directory, or null if no results were stored
+	 * @throws IOException
+	 */
+	public static CoverageReport load(String key, String directory) throws IOException {
+		File entry = new File(Configuration.getCoverageCacheDirectory(), key + ENTRY_EXTENSION);
+		if (!entry.isFile()) {
+			return null;
+		}
+
+		DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(entry), 64 * 1024));
+		try {
+			String projectDirectory = input.readUTF();
+
+			CoverageReport report = BinaryCoverageReport.read(input);
+			report.relocateSources(projectDirectory, new File(directory).getAbsolutePath());
+
+			return report;
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Store the coverage results under the key. An entry is written next to the cache entries first,
+	 * so an interrupted write is never mistaken for an entry.
+	 * @param key Key of the project
+	 * @param directory Directory of the project the results were computed for
+	 * @param report Coverage report of the project
+	 * @throws IOException
+	 */
+	public static void store(String key, String directory, CoverageReport report) throws IOException {
+		File cacheDirectory = new File(Configuration.getCoverageCacheDirectory());
+		cacheDirectory.mkdirs();
+
+		File entry = new File(cacheDirectory, key + ENTRY_EXTENSION);
+		if (entry.isFile()) {
+			return;
+		}
+
+		File partialEntry = new File(cacheDirectory, key + "." + UUID.randomUUID() + ".partial");
+		try {
+			DataOutputStream output = new DataOutputStream(new FileOutputStream(partialEntry));
+			try {
+				output.writeUTF(new File(directory).getAbsolutePath());
+				BinaryCoverageReport.write(report, output);
+			} finally {
+				output.close();
+			}
+
+			// Another run may have stored the same project in the meantime, its results are kept
+			if (!partialEntry.renameTo(entry) && !entry.isFile()) {
+				throw new IOException("Could not move the coverage results to \"" + entry.getAbsolutePath() + "\"");
+			}
+			Main.printLine("[Info] [" + Thread.currentThread().getName() + "] Stored the coverage results in the cache");
+		} finally {
+			partialEntry.delete();
+		}
+	}
+
+	/**
+	 * Hash the content of all files in the project, except hidden files and the target directories
+	 * @param directory Directory of the project
+	 * @return Hexadecimal SHA-1 hash of the paths and contents of the files
+	 * @throws Exception
+	 */
+	private static String getContentHash(File directory) throws Exception {
+		MessageDigest digest = MessageDigest.getInstance("SHA-1");
+		updateContentHash(digest, directory, "");
+		return toHexadecimal(digest.digest());
+	}
+
+	/**
+	 * Add the files within the directory to the hash, in a fixed order
+	 * @param digest
+	 * @param directory
+	 * @param relativePath Path of the directory within the project
+	 * @throws IOException
+	 */
+	private static void updateContentHash(MessageDigest digest, File directory, String relativePath) throws IOException {
+		String[] names = directory.list();
+		if (names == null) {
+			return;
+		}
+		Arrays.sort(names);
+
+		byte[] buffer = new byte[64 * 1024];
+		for(String name : names) {
+			File file = new File(directory, name);
+			if (name.startsWith(".") || (file.isDirectory() && name.equals("target"))) {
+				continue;
+			}
+
+			String path = relativePath + "/" + name;
+			if (file.isDirectory()) {
+				updateContentHash(digest, file, path);
+			} else {
+				// The length separates the content from the path of the next file
+				digest.update(path.getBytes("UTF-8"));
+				digest.update((byte) 0);
+				digest.update(Long.toString(file.length()).getBytes("UTF-8"));
+				digest.update((byte) 0);
+
+				InputStream inputStream = new FileInputStream(file);
+				try {
+					int read;
+					while ((read = inputStream.read(buffer)) != -1) {
+						digest.update(buffer, 0, read);
+					}
+				} finally {
+					inputStream.close();
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param bytes
+	 * @return Lowercase hexadecimal representation of the bytes
+	 */
+	private static String toHexadecimal(byte[] bytes) {
+		StringBuilder hexadecimal = new StringBuilder();
+		for(byte b : bytes) {
+			hexadecimal.append(String.format("%02x", b));
+		}
+
+		return hexadecimal.toString();
+	}
+}
@@ -1,17 +1,31 @@
 package operias.coverage;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
 
+import operias.Configuration;
+import operias.OperiasException;
 import operias.OperiasStatus;
 
 public class CoverageReport {
@@ -41,6 +55,11 @@ public class CoverageReport {
 	 */
 	private List<CoberturaPackage> packages;
 	
+	/**
+	 * The packages in the project, indexed by their name
+	 */
+	private Map<String, CoberturaPackage> packageIndex;
+	
 	/**
 	 * List of sources from where the data was collected
 	 */
@@ -57,77 +76,48 @@ public class CoverageReport {
 	 */
 	public CoverageReport(File coverageXML, String surefireDirectory) {
 		if (coverageXML == null || !coverageXML.exists() || !coverageXML.isFile() || !coverageXML.canRead()) {
-			System.exit(OperiasStatus.ERROR_COBERTURA_INVALID_XML.ordinal());
+			throw new OperiasException(OperiasStatus.ERROR_COBERTURA_INVALID_XML, "Coverage file \"" + coverageXML + "\" can not be read");
 		}
 		this.coverageXML = coverageXML;
 		this.surefireDirectory = surefireDirectory;
 		packages = new ArrayList<CoberturaPackage>();
+		packageIndex = new HashMap<String, CoberturaPackage>();
 		sources = new ArrayList<String>();
 		tests = new ArrayList<TestReport>();
 		
 	}
 	
+	/**
+	 * Create an empty coverage report, used when a report is read from another format than the coverage xml
+	 * @param lineRate Line rate of the project
+	 * @param branchRate Branch rate of the project
+	 */
+	CoverageReport(double lineRate, double branchRate) {
+		this.lineRate = lineRate;
+		this.branchRate = branchRate;
+		packages = new ArrayList<CoberturaPackage>();
+		packageIndex = new HashMap<String, CoberturaPackage>();
+		sources = new ArrayList<String>();
+		tests = new ArrayList<TestReport>();
+	}
+	
 	/**
 	 * Construct the report
 	 */
 	public CoverageReport constructReport() {
 
-		DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-		/*dbFactory.setNamespaceAware(false);
-		dbFactory.setValidating(false);
-			try {
-			dbFactory.setFeature("http://xml.org/sax/features/namespaces", false);
-			dbFactory.setFeature("http://xml.org/sax/features/validation", false);
-			dbFactory.setFeature("http://apache.org/xml/features/nonvalidating/load-dtd-grammar", false);
-			dbFactory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
-		} catch (Exception e) { 
-		
-		}*/
-		DocumentBuilder dBuilder;
-		
-
 		try {
-			dBuilder = dbFactory.newDocumentBuilder();
-		
-			Document doc = dBuilder.parse(coverageXML);
-			
-			Element coverage = doc.getDocumentElement();
-			lineRate = Double.parseDouble(coverage.getAttribute("line-rate"));
-			branchRate = Double.parseDouble(coverage.getAttribute("branch-rate"));
-			
-			// Get all the sources, used by cobertura
-			NodeList sources = doc.getElementsByTagName("source");
-			for(int i = 0; i < sources.getLength(); i++) {
-				Element eSource = (Element)sources.item(i);
-				if(!eSource.getTextContent().equals("--source")) {
-					this.sources.add(eSource.getTextContent());
-				}
-			}
-			
-			
-			// Get all the packages in the report
-			NodeList packages = doc.getElementsByTagName("package");
-			
-			for (int i = 0; i < packages.getLength(); i++) {
-				 
-				Element ePackage = (Element) packages.item(i);
-				
-				String packageName = ePackage.getAttribute("name");
-				double packageLineRate = Double.parseDouble(ePackage.getAttribute("line-rate"));
-				double packageBranchRate = Double.parseDouble(ePackage.getAttribute("branch-rate"));
-				
-				CoberturaPackage cPackage = new CoberturaPackage(packageName, packageLineRate, packageBranchRate);
-		 
-				addClassesToPackage(cPackage, ePackage);
-				
-				this.packages.add(cPackage);
+			if (Configuration.isStreamingCoverageParserEnabled()) {
+				parseCoverageXMLStream();
+			} else {
+				parseCoverageXMLDocument();
 			}
-			
 		} catch (Exception e) {
-			System.exit(OperiasStatus.ERROR_COBERTURA_INVALID_XML.ordinal());
+			throw new OperiasException(OperiasStatus.ERROR_COBERTURA_INVALID_XML, "Invalid coverage file \"" + coverageXML + "\"", e);
 		}
 		
 		if (!surefireDirectory.equals("")) {
+			DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
 			File sureFireDirectory = new File(surefireDirectory);
 			File[] sureFireReports = sureFireDirectory.listFiles((FilenameFilter) new XMLFileFilter());
 			
@@ -135,7 +125,8 @@ public class CoverageReport {
 				for(File sureFireReport : sureFireReports) {
 		
 					try {
-						dBuilder = dbFactory.newDocumentBuilder();
+						DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
+						dBuilder.setEntityResolver(new OfflineEntityResolver());
 						Document doc = dBuilder.parse(sureFireReport);
 		
 						Element testsuite = doc.getDocumentElement();
@@ -172,7 +163,7 @@ public class CoverageReport {
 						}
 						
 					} catch (Exception e) {
-						System.exit(OperiasStatus.ERROR_SUREFIRE_INVALID_XML.ordinal());
+						throw new OperiasException(OperiasStatus.ERROR_SUREFIRE_INVALID_XML, "Invalid surefire report \"" + sureFireReport + "\"", e);
 					}
 				}
 			}
@@ -180,6 +171,149 @@ public class CoverageReport {
 		return this;
 	}
 	
+	/**
+	 * Parse the coverage xml in a single forward pass, without building a DOM tree in memory.
+	 * Only the class level lines are used, the lines within the methods element are skipped.
+	 * @throws IOException
+	 * @throws XMLStreamException
+	 */
+	private void parseCoverageXMLStream() throws IOException, XMLStreamException {
+		XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+		// Only the document itself is needed, the dtd is never loaded. The default attribute
+		// values of the dtd are applied while reading the lines instead
+		inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		
+		InputStream inputStream = new BufferedInputStream(new FileInputStream(coverageXML));
+		XMLStreamReader reader = null;
+		
+		try {
+			reader = inputFactory.createXMLStreamReader(inputStream);
+			
+			CoberturaPackage cPackage = null;
+			CoberturaClass cClass = null;
+			CoberturaLine cLine = null;
+			boolean withinMethods = false;
+			
+			while (reader.hasNext()) {
+				int event = reader.next();
+				
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					String elementName = reader.getLocalName();
+					
+					if (elementName.equals("coverage")) {
+						lineRate = Double.parseDouble(reader.getAttributeValue(null, "line-rate"));
+						branchRate = Double.parseDouble(reader.getAttributeValue(null, "branch-rate"));
+					} else if (elementName.equals("source")) {
+						String source = reader.getElementText();
+						if (!source.equals("--source")) {
+							this.sources.add(source);
+						}
+					} else if (elementName.equals("package")) {
+						String packageName = reader.getAttributeValue(null, "name");
+						double packageLineRate = Double.parseDouble(reader.getAttributeValue(null, "line-rate"));
+						double packageBranchRate = Double.parseDouble(reader.getAttributeValue(null, "branch-rate"));
+						
+						cPackage = new CoberturaPackage(packageName, packageLineRate, packageBranchRate);
+					} else if (elementName.equals("class") && cPackage != null) {
+						String className = reader.getAttributeValue(null, "name");
+						String fileName = reader.getAttributeValue(null, "filename");
+						double classLineRate = Double.parseDouble(reader.getAttributeValue(null, "line-rate"));
+						double classBranchRate = Double.parseDouble(reader.getAttributeValue(null, "branch-rate"));
+						
+						cClass = new CoberturaClass(className, fileName, cPackage.getName(), classLineRate, classBranchRate);
+					} else if (elementName.equals("methods")) {
+						withinMethods = true;
+					} else if (elementName.equals("line") && cClass != null && !withinMethods) {
+						int number 			= Integer.parseInt(reader.getAttributeValue(null, "number"));
+						int hits			= Integer.parseInt(reader.getAttributeValue(null, "hits"));
+						boolean condition 	= Boolean.parseBoolean(reader.getAttributeValue(null, "branch"));
+						boolean conditionCompletelyCovered = false;
+						
+						if (condition) {
+							String conditionCoverage = reader.getAttributeValue(null, "condition-coverage");
+							conditionCompletelyCovered = conditionCoverage == null || conditionCoverage.startsWith("100");
+						}
+						
+						cLine = new CoberturaLine(number, hits, condition, conditionCompletelyCovered);
+					} else if (elementName.equals("condition") && cLine != null && cLine.isCondition()) {
+						int number 			= Integer.parseInt(reader.getAttributeValue(null, "number"));
+						String type			= reader.getAttributeValue(null, "type");
+						String coverage		= reader.getAttributeValue(null, "coverage");
+						
+						cLine.addCondition(new CoberturaCondition(number, type, coverage));
+					}
+				} else if (event == XMLStreamConstants.END_ELEMENT) {
+					String elementName = reader.getLocalName();
+					
+					if (elementName.equals("line") && cLine != null) {
+						cClass.addLine(cLine);
+						cLine = null;
+					} else if (elementName.equals("methods")) {
+						withinMethods = false;
+					} else if (elementName.equals("class") && cClass != null) {
+						cPackage.addClass(cClass);
+						cClass = null;
+					} else if (elementName.equals("package") && cPackage != null) {
+						addPackage(cPackage);
+						cPackage = null;
+					}
+				}
+			}
+		} finally {
+			if (reader != null) {
+				reader.close();
+			}
+			inputStream.close();
+		}
+	}
+	
+	/**
+	 * Parse the coverage xml by loading it completely into a DOM tree
+	 * @throws ParserConfigurationException
+	 * @throws SAXException
+	 * @throws IOException
+	 */
+	private void parseCoverageXMLDocument() throws ParserConfigurationException, SAXException, IOException {
+
+		DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
+		DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
+		dBuilder.setEntityResolver(new OfflineEntityResolver());
+		
+		Document doc = dBuilder.parse(coverageXML);
+		
+		Element coverage = doc.getDocumentElement();
+		lineRate = Double.parseDouble(coverage.getAttribute("line-rate"));
+		branchRate = Double.parseDouble(coverage.getAttribute("branch-rate"));
+		
+		// Get all the sources, used by cobertura
+		NodeList sources = doc.getElementsByTagName("source");
+		for(int i = 0; i < sources.getLength(); i++) {
+			Element eSource = (Element)sources.item(i);
+			if(!eSource.getTextContent().equals("--source")) {
+				this.sources.add(eSource.getTextContent());
+			}
+		}
+		
+		
+		// Get all the packages in the report
+		NodeList packages = doc.getElementsByTagName("package");
+		
+		for (int i = 0; i < packages.getLength(); i++) {
+			 
+			Element ePackage = (Element) packages.item(i);
+			
+			String packageName = ePackage.getAttribute("name");
+			double packageLineRate = Double.parseDouble(ePackage.getAttribute("line-rate"));
+			double packageBranchRate = Double.parseDouble(ePackage.getAttribute("branch-rate"));
+			
+			CoberturaPackage cPackage = new CoberturaPackage(packageName, packageLineRate, packageBranchRate);
+	 
+			addClassesToPackage(cPackage, ePackage);
+			
+			addPackage(cPackage);
+		}
+	}
+	
 	/**
 	 * File filter, to only accept xml files
 	 * @author soosterwaal
@@ -299,6 +433,20 @@ public class CoverageReport {
 	}
 
 	/**
+	 * Add a package to the report
+	 * @param cPackage Cobertura package
+	 */
+	public void addPackage(CoberturaPackage cPackage) {
+		packages.add(cPackage);
+		
+		// The first package with a given name is the one found by getPackage
+		if (!packageIndex.containsKey(cPackage.getName())) {
+			packageIndex.put(cPackage.getName(), cPackage);
+		}
+	}
+	
+	/**
+	 * Packages must be added through addPackage, to keep the package index up to date
 	 * @return the packages
 	 */
 	public List<CoberturaPackage> getPackages() {
@@ -311,13 +459,7 @@ public class CoverageReport {
 	 * @return
 	 */
 	public CoberturaPackage getPackage(String packageName) {
-		for(CoberturaPackage cPackage : packages) {
-			if (cPackage.getName().equals(packageName)) {
-				return cPackage;
-			}
-		}
-		
-		return null;
+		return packageIndex.get(packageName);
 	}
 	
 	/**
@@ -336,6 +478,20 @@ public class CoverageReport {
 		return sources;
 	}
 
+	/**
+	 * Move the sources located within a directory to another directory, used when the report was generated for a project in a different location
+	 * @param fromDirectory Directory in which the project was located
+	 * @param toDirectory Directory in which the project is located now
+	 */
+	public void relocateSources(String fromDirectory, String toDirectory) {
+		for(int i = 0; i < sources.size(); i++) {
+			String source = sources.get(i);
+			if (source.equals(fromDirectory) || source.startsWith(fromDirectory + File.separator)) {
+				sources.set(i, toDirectory + source.substring(fromDirectory.length()));
+			}
+		}
+	}
+
 	/**
 	 * @return the tests
 	 */
@@ -0,0 +1,69 @@
+package operias.coverage;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import operias.Configuration;
+
+/**
+ * Divides the processors in the cpu budget over the maven builds which run at the same time, so the builds of the
+ * original and revised project do not both assume they own the machine. The share of a build is fixed when maven is started.
+ */
+public class CpuBudget {
+
+	/**
+	 * Static class, so private constructor
+	 */
+	private CpuBudget() {
+
+	}
+
+	/**
+	 * Number of maven builds which are expected to run at the same time
+	 */
+	private static int plannedBuilds = 1;
+
+	/**
+	 * Set the number of maven builds which are expected to run at the same time
+	 * @param builds At least 1
+	 */
+	public static synchronized void setPlannedBuilds(int builds) {
+		plannedBuilds = Math.max(1, builds);
+	}
+
+	/**
+	 * A planned build turned out to be unnecessary, for example because its results were cached.
+	 * Builds started afterwards get a larger share
+	 */
+	public static synchronized void cancelPlannedBuild() {
+		plannedBuilds = Math.max(1, plannedBuilds - 1);
+	}
+
+	/**
+	 * @return The number of processors a single build may use, at least 1
+	 */
+	public static synchronized int getShare() {
+		return Math.max(1, Configuration.getCpuBudget() / plannedBuilds);
+	}
+
+	/**
+	 * Create a pool for the work that follows the builds, such as combining the reports and writing the html pages.
+	 * The builds are done by then, so the pool uses the whole budget. The pool must be shut down after use
+	 * @param name Name of the threads, followed by their number
+	 * @return The pool
+	 */
+	public static ExecutorService newPool(final String name) {
+		return Executors.newFixedThreadPool(Math.max(1, Configuration.getCpuBudget()), new ThreadFactory() {
+			private final AtomicInteger threadCount = new AtomicInteger();
+			
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, name + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+}
@@ -0,0 +1,215 @@
+package operias.coverage;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import operias.Main;
+
+/**
+ * Reads the output of a maven process until it ends, so the process never blocks on a full pipe.
+ * The output is written to a log file and the time spent in every phase of the build is measured,
+ * based on the plugin executions maven reports.
+ *
+ * A phase lasts from the start of a plugin execution until the start of the next one, so the time
+ * maven needs to start and resolve the project is reported as the startup phase.
+ */
+public class MavenOutput implements Runnable {
+
+	/**
+	 * Line printed by maven when a plugin execution starts, for example "[INFO] --- maven-surefire-plugin:2.12.4:test (default-test) @ project ---"
+	 */
+	private static final Pattern PLUGIN_EXECUTION = Pattern.compile("^\\[INFO\\] --- ([^:\\s]+):[^:\\s]+:([^\\s]+) .*@ .* ---$");
+
+	/**
+	 * Output of the maven process
+	 */
+	private InputStream input;
+
+	/**
+	 * File to which the output is written, null if the output is only read
+	 */
+	private File logFile;
+
+	/**
+	 * Time spent in every phase in milliseconds, in order of the first execution of the phase
+	 */
+	private Map<String, Long> phaseDurations;
+
+	/**
+	 * Phase that is currently executed
+	 */
+	private String currentPhase;
+
+	/**
+	 * Start time of the current phase
+	 */
+	private long phaseStart;
+
+	/**
+	 * Read the output of a maven process
+	 * @param input Output of the process
+	 * @param logFile File to which the output is written, null to not write the output
+	 */
+	public MavenOutput(InputStream input, File logFile) {
+		this.input = input;
+		this.logFile = logFile;
+		this.phaseDurations = new LinkedHashMap<String, Long>();
+		this.currentPhase = "startup";
+		this.phaseStart = System.currentTimeMillis();
+	}
+
+	/**
+	 * Read the output until the process closes it
+	 */
+	@Override
+	public void run() {
+		Writer log = openLog();
+
+		try {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(input));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				Matcher matcher = PLUGIN_EXECUTION.matcher(line);
+				if (matcher.matches()) {
+					startPhase(getPhase(matcher.group(1), matcher.group(2)));
+				}
+
+				log = writeLine(log, line);
+			}
+		} catch (IOException e) {
+			Main.printLine("[Warning] [" + Thread.currentThread().getName() + "] Error while reading the maven output: " + e.getMessage());
+		} finally {
+			startPhase(null);
+
+			log = writeLine(log, "[Operias] Phase durations: " + getPhaseSummary());
+			closeLog(log);
+		}
+	}
+
+	/**
+	 * Get the time spent in every phase of the build, only complete after the output was read completely
+	 * @return Duration in milliseconds of every phase, in order of the first execution of the phase
+	 */
+	public Map<String, Long> getPhaseDurations() {
+		return phaseDurations;
+	}
+
+	/**
+	 * Get a readable summary of the time spent in every phase
+	 * @return For example "startup 4.1s, clean 0.2s, compile 3.5s"
+	 */
+	public String getPhaseSummary() {
+		StringBuilder summary = new StringBuilder();
+		for(Map.Entry<String, Long> phase : phaseDurations.entrySet()) {
+			if (summary.length() > 0) {
+				summary.append(", ");
+			}
+			summary.append(phase.getKey()).append(' ').append(String.format("%.1fs", phase.getValue() / 1000.0));
+		}
+
+		return summary.toString();
+	}
+
+	/**
+	 * End the current phase and start a new phase, a phase can be executed multiple times
+	 * @param phase The new phase, null if the build ended
+	 */
+	private void startPhase(String phase) {
+		long now = System.currentTimeMillis();
+		if (currentPhase != null) {
+			Long duration = phaseDurations.get(currentPhase);
+			phaseDurations.put(currentPhase, (duration == null ? 0 : duration) + now - phaseStart);
+		}
+
+		currentPhase = phase;
+		phaseStart = now;
+	}
+
+	/**
+	 * Get the phase to which a plugin execution belongs
+	 * @param plugin Name of the plugin, such as maven-compiler-plugin or compiler
+	 * @param goal Goal of the plugin
+	 * @return The phase, compile, instrumentation, test, report, clean or other
+	 */
+	private String getPhase(String plugin, String goal) {
+		if (goal.equals("instrument")) {
+			return "instrumentation";
+		} else if (plugin.contains("surefire")) {
+			return "test";
+		} else if (plugin.contains("compiler") || plugin.contains("resources")) {
+			return "compile";
+		} else if (plugin.contains("cobertura")) {
+			return "report";
+		} else if (plugin.contains("clean")) {
+			return "clean";
+		}
+
+		return "other";
+	}
+
+	/**
+	 * Open the log file
+	 * @return Writer of the log, or null if there is no log file or it could not be opened
+	 */
+	private Writer openLog() {
+		if (logFile == null) {
+			return null;
+		}
+
+		try {
+			logFile.getAbsoluteFile().getParentFile().mkdirs();
+			return new BufferedWriter(new FileWriter(logFile));
+		} catch (IOException e) {
+			Main.printLine("[Warning] [" + Thread.currentThread().getName() + "] Could not create the maven log \"" + logFile.getPath() + "\"");
+			return null;
+		}
+	}
+
+	/**
+	 * Write a line to the log, writing stops on the first error but the output is still read
+	 * @param log
+	 * @param line
+	 * @return The log, or null if writing failed
+	 */
+	private Writer writeLine(Writer log, String line) {
+		if (log == null) {
+			return null;
+		}
+
+		try {
+			log.write(line);
+			log.write(System.lineSeparator());
+			return log;
+		} catch (IOException e) {
+			Main.printLine("[Warning] [" + Thread.currentThread().getName() + "] Could not write to the maven log \"" + logFile.getPath() + "\"");
+			closeLog(log);
+			return null;
+		}
+	}
+
+	/**
+	 * Close the log
+	 * @param log
+	 */
+	private void closeLog(Writer log) {
+		if (log == null) {
+			return;
+		}
+
+		try {
+			log.close();
+		} catch (IOException e) {
+			Main.printLine("[Warning] [" + Thread.currentThread().getName() + "] Could not close the maven log \"" + logFile.getPath() + "\"");
+		}
+	}
+}
@@ -0,0 +1,387 @@
+package operias.coverage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.commons.io.FileUtils;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import operias.Main;
+import operias.git.Git;
+
+/**
+ * Coverage of multi-module maven projects which is computed per module. The coverage of a module only depends on
+ * the module itself and the modules it depends on, so after a change only the changed modules and the modules depending
+ * on them need to be built. The coverage of the other modules is equal to their coverage in the original project.
+ */
+public class ModuleCoverage {
+
+	/**
+	 * Static class, so private constructor
+	 */
+	private ModuleCoverage() {
+
+	}
+
+	/**
+	 * Get the modules of the revised project which contain changes compared to the original project
+	 * @param originalDirectory Directory of the original project
+	 * @param revisedDirectory Directory of the revised project
+	 * @return Paths of the changed modules relative to the project directory, separated by slashes.
+	 * Null if the whole project must be built, because it has no modules, its modules differ or files outside the modules changed
+	 * @throws Exception If the directories could not be read
+	 */
+	public static List<String> getChangedModules(String originalDirectory, String revisedDirectory) throws Exception {
+		List<String> modules = getModules(new File(revisedDirectory));
+		if (modules.isEmpty() || !modules.equals(getModules(new File(originalDirectory)))) {
+			return null;
+		}
+
+		Set<String> changedModules = new TreeSet<String>();
+		for(String changedFile : getChangedFiles(originalDirectory, revisedDirectory)) {
+			String module = getModule(changedFile, modules);
+			if (module == null) {
+				Main.printLine("[Info] [" + Thread.currentThread().getName() + "] \"" + changedFile + "\" is not part of a module, building all modules");
+				return null;
+			}
+
+			changedModules.add(module);
+		}
+
+		return new ArrayList<String>(changedModules);
+	}
+
+	/**
+	 * Get all modules of the maven project in the directory, including the modules of its modules
+	 * @param directory Directory of the maven project
+	 * @return Paths of the modules relative to the directory, separated by slashes, the project itself is not included
+	 * @throws Exception If a pom file could not be read
+	 */
+	public static List<String> getModules(File directory) throws Exception {
+		List<String> modules = new ArrayList<String>();
+		addModules(directory.getCanonicalFile(), directory, modules);
+		return modules;
+	}
+
+	/**
+	 * Combine the reports of several modules into one report
+	 * @param reports Reports of the modules
+	 * @return Report containing all sources, tests and classes of the modules, classes of the same package are in the same package
+	 */
+	public static CoverageReport merge(List<CoverageReport> reports) {
+		List<String> sources = new ArrayList<String>();
+		List<TestReport> tests = new ArrayList<TestReport>();
+		List<String> packageNames = new ArrayList<String>();
+		List<List<CoberturaClass>> packageClasses = new ArrayList<List<CoberturaClass>>();
+
+		for(CoverageReport report : reports) {
+			for(String source : report.getSources()) {
+				if (!sources.contains(source)) {
+					sources.add(source);
+				}
+			}
+			tests.addAll(report.getAllTests());
+
+			for(CoberturaPackage cPackage : report.getPackages()) {
+				int index = packageNames.indexOf(cPackage.getName());
+				if (index < 0) {
+					index = packageNames.size();
+					packageNames.add(cPackage.getName());
+					packageClasses.add(new ArrayList<CoberturaClass>());
+				}
+				packageClasses.get(index).addAll(cPackage.getClasses());
+			}
+		}
+
+		List<CoberturaClass> allClasses = new ArrayList<CoberturaClass>();
+		for(List<CoberturaClass> classes : packageClasses) {
+			allClasses.addAll(classes);
+		}
+
+		CoverageReport mergedReport = new CoverageReport(getLineRate(allClasses), getConditionRate(allClasses));
+		mergedReport.getSources().addAll(sources);
+		mergedReport.getAllTests().addAll(tests);
+
+		for(int i = 0; i < packageNames.size(); i++) {
+			List<CoberturaClass> classes = packageClasses.get(i);
+			CoberturaPackage cPackage = new CoberturaPackage(packageNames.get(i), getLineRate(classes), getConditionRate(classes));
+			for(CoberturaClass cClass : classes) {
+				cPackage.addClass(cClass);
+			}
+			mergedReport.addPackage(cPackage);
+		}
+
+		return mergedReport;
+	}
+
+	/**
+	 * Construct the report of the revised project from the report of the modules which were built and the report of the original project
+	 * @param builtReport Report of the changed modules and the modules depending on them
+	 * @param originalReport Report of all modules of the original project
+	 * @param originalDirectory Directory of the original project
+	 * @param revisedDirectory Directory of the revised project
+	 * @param changedModules Modules of the revised project which contain changes
+	 * @return Report of all modules of the revised project, with its sources located in the revised directory
+	 * @throws IOException If the directories could not be resolved
+	 */
+	public static CoverageReport combine(CoverageReport builtReport, CoverageReport originalReport, String originalDirectory, String revisedDirectory, List<String> changedModules) throws IOException {
+		File original = new File(originalDirectory).getCanonicalFile();
+
+		// The tests of the unchanged modules are not known per module, so only the tests of the built modules are reported
+		CoverageReport unchangedReport = new CoverageReport(originalReport.getLineRate(), originalReport.getConditionRate());
+		for(CoberturaPackage cPackage : originalReport.getPackages()) {
+			CoberturaPackage builtPackage = builtReport.getPackage(cPackage.getName());
+			CoberturaPackage unchangedPackage = new CoberturaPackage(cPackage.getName(), cPackage.getLineRate(), cPackage.getConditionRate());
+
+			for(CoberturaClass cClass : cPackage.getClasses()) {
+				if (builtPackage != null && builtPackage.getClass(cClass.getName()) != null) {
+					continue;
+				}
+
+				if (getSourceModule(cClass, originalReport.getSources(), original, changedModules) != null) {
+					continue;
+				}
+
+				unchangedPackage.addClass(cClass);
+			}
+
+			if (!unchangedPackage.getClasses().isEmpty()) {
+				unchangedReport.addPackage(unchangedPackage);
+			}
+		}
+
+		for(String source : originalReport.getSources()) {
+			String module = getModule(getRelativePath(new File(source).getCanonicalFile(), original), changedModules);
+			if (module == null) {
+				unchangedReport.getSources().add(source);
+			}
+		}
+		unchangedReport.relocateSources(originalDirectory, revisedDirectory);
+		if (!original.getPath().equals(originalDirectory)) {
+			unchangedReport.relocateSources(original.getPath(), revisedDirectory);
+		}
+
+		List<CoverageReport> reports = new ArrayList<CoverageReport>();
+		reports.add(builtReport);
+		reports.add(unchangedReport);
+		return merge(reports);
+	}
+
+	/**
+	 * Add the modules listed in the pom file in the directory, and their modules
+	 * @param rootDirectory Canonical directory of the root project
+	 * @param directory Directory of a maven project within the root project
+	 * @param modules List to which the modules are added
+	 * @throws Exception If a pom file could not be read
+	 */
+	private static void addModules(File rootDirectory, File directory, List<String> modules) throws Exception {
+		File pomXML = new File(directory, "pom.xml");
+		if (!pomXML.isFile()) {
+			return;
+		}
+
+		Element project = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(pomXML).getDocumentElement();
+		for(Element modulesElement : getChildElements(project, "modules")) {
+			for(Element moduleElement : getChildElements(modulesElement, "module")) {
+				File moduleDirectory = new File(directory, moduleElement.getTextContent().trim()).getCanonicalFile();
+
+				// A module can also be given as the path of its pom file
+				if (moduleDirectory.isFile()) {
+					moduleDirectory = moduleDirectory.getParentFile();
+				}
+
+				String modulePath = getRelativePath(moduleDirectory, rootDirectory);
+				if (modulePath == null || modulePath.isEmpty() || modules.contains(modulePath)) {
+					continue;
+				}
+
+				modules.add(modulePath);
+				addModules(rootDirectory, moduleDirectory, modules);
+			}
+		}
+	}
+
+	/**
+	 * Get the direct child elements of an element with the given name
+	 * @param element
+	 * @param name
+	 * @return
+	 */
+	private static List<Element> getChildElements(Element element, String name) {
+		List<Element> children = new ArrayList<Element>();
+		NodeList nodes = element.getChildNodes();
+		for(int i = 0; i < nodes.getLength(); i++) {
+			Node node = nodes.item(i);
+			if (node.getNodeType() == Node.ELEMENT_NODE && node.getNodeName().equals(name)) {
+				children.add((Element) node);
+			}
+		}
+
+		return children;
+	}
+
+	/**
+	 * Get the files which differ between the original and revised project. Git is used if both projects are clean checkouts,
+	 * otherwise the content of the files is compared
+	 * @param originalDirectory
+	 * @param revisedDirectory
+	 * @return Paths of the changed, added and removed files relative to the project directory, separated by slashes
+	 * @throws Exception If the directories could not be read
+	 */
+	private static Collection<String> getChangedFiles(String originalDirectory, String revisedDirectory) throws Exception {
+		File original = new File(originalDirectory).getCanonicalFile();
+		File revised = new File(revisedDirectory).getCanonicalFile();
+
+		if (new File(original, ".git").exists() && new File(revised, ".git").exists()
+				&& Git.getCleanTreeID(originalDirectory) != null && Git.getCleanTreeID(revisedDirectory) != null) {
+			try {
+				List<String> changedFiles = new ArrayList<String>();
+				for(String changedFile : Git.changedFiles(originalDirectory, revisedDirectory)) {
+					changedFiles.add(getRelativePath(new File(changedFile).getCanonicalFile(), revised));
+				}
+				return changedFiles;
+			} catch (Exception e) {
+				Main.printLine("[Info] [" + Thread.currentThread().getName() + "] Could not list the changed files through git, comparing the files instead");
+			}
+		}
+
+		Set<String> files = new TreeSet<String>();
+		addFiles(original, "", files);
+		addFiles(revised, "", files);
+
+		List<String> changedFiles = new ArrayList<String>();
+		for(String file : files) {
+			File originalFile = new File(original, file);
+			File revisedFile = new File(revised, file);
+			if (!originalFile.isFile() || !revisedFile.isFile() || !FileUtils.contentEquals(originalFile, revisedFile)) {
+				changedFiles.add(file);
+			}
+		}
+
+		return changedFiles;
+	}
+
+	/**
+	 * Add the files in the directory to the set, skipping hidden files and build output
+	 * @param directory
+	 * @param relativePath Path of the directory relative to the project directory
+	 * @param files
+	 */
+	private static void addFiles(File directory, String relativePath, Set<String> files) {
+		File[] children = directory.listFiles();
+		if (children == null) {
+			return;
+		}
+
+		for(File child : children) {
+			if (child.getName().startsWith(".")) {
+				continue;
+			}
+
+			String childPath = relativePath.isEmpty() ? child.getName() : relativePath + "/" + child.getName();
+			if (child.isDirectory()) {
+				if (!child.getName().equals("target")) {
+					addFiles(child, childPath, files);
+				}
+			} else {
+				files.add(childPath);
+			}
+		}
+	}
+
+	/**
+	 * Get the module a file belongs to
+	 * @param path Path of the file relative to the project directory, separated by slashes
+	 * @param modules Paths of the modules
+	 * @return The deepest module containing the file, or null if the file belongs to none of the modules
+	 */
+	private static String getModule(String path, Collection<String> modules) {
+		if (path == null) {
+			return null;
+		}
+
+		String module = null;
+		for(String candidate : modules) {
+			if ((path.equals(candidate) || path.startsWith(candidate + "/")) && (module == null || candidate.length() > module.length())) {
+				module = candidate;
+			}
+		}
+
+		return module;
+	}
+
+	/**
+	 * Get the module containing the source file of a class
+	 * @param cClass
+	 * @param sources Source directories of the report containing the class
+	 * @param projectDirectory Canonical directory of the project
+	 * @param modules Modules to which the source file may belong
+	 * @return The deepest of the modules containing the source file, or null if the source file was not found within one of them
+	 * @throws IOException
+	 */
+	private static String getSourceModule(CoberturaClass cClass, List<String> sources, File projectDirectory, Collection<String> modules) throws IOException {
+		for(String source : sources) {
+			File sourceFile = new File(source, cClass.getFileName());
+			if (sourceFile.isFile()) {
+				return getModule(getRelativePath(sourceFile.getCanonicalFile(), projectDirectory), modules);
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Get the path of a file relative to a directory
+	 * @param file Canonical file
+	 * @param directory Canonical directory
+	 * @return The relative path separated by slashes, or null if the file is not within the directory
+	 */
+	private static String getRelativePath(File file, File directory) {
+		if (!file.toPath().startsWith(directory.toPath())) {
+			return null;
+		}
+
+		return directory.toPath().relativize(file.toPath()).toString().replace(File.separatorChar, '/');
+	}
+
+	/**
+	 * Compute the line rate of a set of classes
+	 * @param classes
+	 * @return The fraction of the lines of the classes which were covered
+	 */
+	private static double getLineRate(List<CoberturaClass> classes) {
+		double coveredLines = 0;
+		int lineCount = 0;
+		for(CoberturaClass cClass : classes) {
+			coveredLines += cClass.getLineRate() * cClass.getLineCount();
+			lineCount += cClass.getLineCount();
+		}
+
+		return lineCount == 0 ? 1 : coveredLines / lineCount;
+	}
+
+	/**
+	 * Compute the branch rate of a set of classes, weighing the classes by their number of conditions
+	 * @param classes
+	 * @return The fraction of the conditions of the classes which were covered
+	 */
+	private static double getConditionRate(List<CoberturaClass> classes) {
+		double coveredConditions = 0;
+		int conditionCount = 0;
+		for(CoberturaClass cClass : classes) {
+			coveredConditions += cClass.getConditionRate() * cClass.getConditionCount();
+			conditionCount += cClass.getConditionCount();
+		}
+
+		return conditionCount == 0 ? 1 : coveredConditions / conditionCount;
+	}
+}
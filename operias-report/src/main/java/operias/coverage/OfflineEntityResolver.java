@@ -0,0 +1,48 @@
+package operias.coverage;
+
+import java.io.InputStream;
+import java.io.StringReader;
+
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+
+/**
+ * Entity resolver which never goes to the network. The cobertura dtd is served from
+ * the bundled copy, every other external entity (for example a dtd in a surefire report)
+ * is resolved to an empty document.
+ */
+public class OfflineEntityResolver implements EntityResolver {
+
+	/**
+	 * File name of the dtd which is declared in the cobertura coverage xml files
+	 */
+	private static final String COVERAGE_DTD = "coverage-04.dtd";
+
+	/**
+	 * Location of the bundled dtd on the classpath
+	 */
+	private static final String COVERAGE_DTD_RESOURCE = "/dtd/" + COVERAGE_DTD;
+
+	/**
+	 * Resolve the entity to a local input source
+	 */
+	@Override
+	public InputSource resolveEntity(String publicId, String systemId) {
+		InputStream dtdStream = null;
+
+		if (systemId != null && systemId.endsWith(COVERAGE_DTD)) {
+			dtdStream = getClass().getResourceAsStream(COVERAGE_DTD_RESOURCE);
+		}
+
+		InputSource source;
+		if (dtdStream != null) {
+			source = new InputSource(dtdStream);
+		} else {
+			source = new InputSource(new StringReader(""));
+		}
+
+		source.setPublicId(publicId);
+		source.setSystemId(systemId);
+		return source;
+	}
+}
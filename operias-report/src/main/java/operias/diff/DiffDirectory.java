@@ -2,10 +2,15 @@ package operias.diff;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.security.InvalidParameterException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 
 import org.apache.commons.io.FilenameUtils;
 
@@ -102,69 +107,144 @@ public class DiffDirectory {
 	}
 	
 	/**
-	 * 
+	 * Compare the original directory to the revised directory, within the current thread
 	 * @param originalDirectory
 	 * @param revisedDirectory
 	 * @throws IOException 
 	 */
 	public static DiffDirectory compareDirectory(String originalDirectory, String revisedDirectory) throws IOException {
+		return compareDirectory(originalDirectory, revisedDirectory, (Set<String>) null);
+	}
+	
+	/**
+	 * Compare the original directory to the revised directory, within the current thread. Only the files
+	 * in the given set are compared, all other files which exist in both directories are the same.
+	 * @param originalDirectory
+	 * @param revisedDirectory
+	 * @param changedFiles Absolute paths of the revised files which may have changed, null to compare all files
+	 * @throws IOException 
+	 */
+	public static DiffDirectory compareDirectory(String originalDirectory, String revisedDirectory, Set<String> changedFiles) throws IOException {
+		return compareDirectory(originalDirectory, revisedDirectory, changedFiles, (ForkJoinPool) null);
+	}
+	
+	/**
+	 * Compare the original directory to the revised directory, every sub directory and file pair
+	 * is compared in its own task within the given pool. The result is identical to the sequential comparison.
+	 * @param originalDirectory
+	 * @param revisedDirectory
+	 * @param pool Fork join pool in which the comparison is executed
+	 * @throws IOException 
+	 */
+	public static DiffDirectory compareDirectory(String originalDirectory, String revisedDirectory, ForkJoinPool pool) throws IOException {
+		return compareDirectory(originalDirectory, revisedDirectory, (Set<String>) null, pool);
+	}
+	
+	/**
+	 * Compare the original directory to the revised directory within the given pool, only the files in the
+	 * given set are compared. All other files which exist in both directories are the same.
+	 * @param originalDirectory
+	 * @param revisedDirectory
+	 * @param changedFiles Absolute paths of the revised files which may have changed, null to compare all files
+	 * @param pool Fork join pool in which the comparison is executed
+	 * @throws IOException 
+	 */
+	public static DiffDirectory compareDirectory(String originalDirectory, String revisedDirectory, Set<String> changedFiles, ForkJoinPool pool) throws IOException {
+		return compareDirectory(originalDirectory, revisedDirectory, new FileSystemSourceProvider(), new FileSystemSourceProvider(), changedFiles, pool);
+	}
+	
+	/**
+	 * Compare the original directory to the revised directory, reading the directories and files from the given sources
+	 * @param originalDirectory
+	 * @param revisedDirectory
+	 * @param originalSource Source of the original directory
+	 * @param revisedSource Source of the revised directory
+	 * @param changedFiles Absolute paths of the revised files which may have changed, null to compare all files
+	 * @param pool Fork join pool in which the comparison is executed, null to compare within the current thread
+	 * @throws IOException 
+	 */
+	public static DiffDirectory compareDirectory(String originalDirectory, String revisedDirectory, SourceProvider originalSource, SourceProvider revisedSource, 
+			Set<String> changedFiles, ForkJoinPool pool) throws IOException {
+		CompareContext context = new CompareContext(originalSource, revisedSource, changedFiles, pool != null);
+		
+		if (pool == null) {
+			return compareDirectory(originalDirectory, revisedDirectory, context);
+		}
+		
+		try {
+			return (DiffDirectory) pool.invoke(new CompareTask(originalDirectory, revisedDirectory, true, context));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+	
+	/**
+	 * 
+	 * @param originalDirectory
+	 * @param revisedDirectory
+	 * @param context Sources, changed files and parallelism of the comparison
+	 * @throws IOException 
+	 */
+	private static DiffDirectory compareDirectory(String originalDirectory, String revisedDirectory, CompareContext context) throws IOException {
 		
 		// Short cuts 
 		if (originalDirectory == null) {
-			return fillDirectoryDiff(revisedDirectory, SourceDiffState.NEW);
+			return fillDirectoryDiff(revisedDirectory, SourceDiffState.NEW, context);
 		} else if (revisedDirectory == null) {
-			return fillDirectoryDiff(originalDirectory, SourceDiffState.DELETED);
+			return fillDirectoryDiff(originalDirectory, SourceDiffState.DELETED, context);
 		} 
 		
 		// Both directories should exists, if not, throw exceptions
 		DiffDirectory diffDirectory = new DiffDirectory(originalDirectory, revisedDirectory, SourceDiffState.SAME);
 		
-		File originalDirectoryFile = new File(originalDirectory);
-		File newDirectoryFile = new File(revisedDirectory);
+		SourceProvider originalSource = context.originalSource;
+		SourceProvider revisedSource = context.revisedSource;
 		
-		if (!originalDirectoryFile.isDirectory()) {
+		if (!originalSource.isDirectory(originalDirectory)) {
 			throw new InvalidParameterException("'" +originalDirectory + "' is not a valid directory");
 		}
 		
-		if (!newDirectoryFile.isDirectory()) {
-			throw new InvalidParameterException("'" +newDirectoryFile + "' is not a valid directory");
+		if (!revisedSource.isDirectory(revisedDirectory)) {
+			throw new InvalidParameterException("'" +revisedDirectory + "' is not a valid directory");
 		}
 		
-		String[] newFiles = newDirectoryFile.list();
+		String[] newFiles = revisedSource.list(revisedDirectory);
 		Arrays.sort(newFiles);
-		String[] originalFiles = originalDirectoryFile.list();
+		String[] originalFiles = originalSource.list(originalDirectory);
 		Arrays.sort(originalFiles);
 		
 		List<String> filesWithinNewDirectory = Arrays.asList(newFiles);
 		List<String> filesWithinOriginalDirectory = Arrays.asList(originalFiles);
 		
+		List<CompareTask> tasks = new ArrayList<CompareTask>();
+		
 		//First cmpare the original dirs with the new one to see changes and deleted file and directories
 		for(String fileName : filesWithinOriginalDirectory) {
-			File originalFile = new File(originalDirectoryFile, fileName);
+			String originalFile = new File(originalDirectory, fileName).getAbsolutePath();
 			
 			
-			if (originalFile.isHidden()) {
+			if (originalSource.isHidden(originalFile)) {
 				continue;
 			}
 			
-			if (originalFile.isDirectory()) {
-				if (filesWithinNewDirectory.indexOf(fileName) >= 0) {
+			if (originalSource.isDirectory(originalFile)) {
+				if (Arrays.binarySearch(newFiles, fileName) >= 0) {
 					// Directory exists
-					File newDir = new File(newDirectoryFile, fileName);
-					diffDirectory.addDirectory(DiffDirectory.compareDirectory(originalFile.getAbsolutePath(), newDir.getAbsolutePath()));
+					String newDir = new File(revisedDirectory, fileName).getAbsolutePath();
+					tasks.add(new CompareTask(originalFile, newDir, true, context));
 				} else {
 					// Directory was deleted
-					diffDirectory.addDirectory(DiffDirectory.compareDirectory(originalFile.getAbsolutePath(), null));
+					tasks.add(new CompareTask(originalFile, null, true, context));
 				}
 			} else {
-				if (FilenameUtils.getExtension(originalFile.getName()).equals("java")) {
-					if (filesWithinNewDirectory.indexOf(fileName) >= 0) {
+				if (FilenameUtils.getExtension(fileName).equals("java")) {
+					if (Arrays.binarySearch(newFiles, fileName) >= 0) {
 						// File exists
-						File newFile = new File(newDirectoryFile, fileName);
-						diffDirectory.addFile(DiffFile.compareFile(originalFile.getAbsolutePath(), newFile.getAbsolutePath()));
+						String newFile = new File(revisedDirectory, fileName).getAbsolutePath();
+						tasks.add(new CompareTask(originalFile, newFile, false, context));
 					} else {
 						// File was deleted
-						diffDirectory.addFile(DiffFile.compareFile(originalFile.getAbsolutePath(), null));
+						tasks.add(new CompareTask(originalFile, null, false, context));
 					}
 				}
 			}
@@ -172,25 +252,27 @@ public class DiffDirectory {
 		
 		//Secondly check the new directory for any new files or directories
 		for(String fileName : filesWithinNewDirectory) {
-			File newFile = new File(revisedDirectory, fileName);
+			String newFile = new File(revisedDirectory, fileName).getAbsolutePath();
 
-			if (newFile.isHidden()) {
+			if (revisedSource.isHidden(newFile)) {
 				continue;
 			}
-			if (filesWithinOriginalDirectory.indexOf(fileName) < 0) {
-				if (newFile.isDirectory()) {
+			if (Arrays.binarySearch(originalFiles, fileName) < 0) {
+				if (revisedSource.isDirectory(newFile)) {
 					// directory is new
-					diffDirectory.addDirectory(DiffDirectory.compareDirectory(null, newFile.getAbsolutePath()));		
+					tasks.add(new CompareTask(null, newFile, true, context));
 				} else {
 					// file is new
 
-					if (FilenameUtils.getExtension(newFile.getName()).equals("java")) {
-						diffDirectory.addFile(DiffFile.compareFile(null, newFile.getAbsolutePath()));		
+					if (FilenameUtils.getExtension(fileName).equals("java")) {
+						tasks.add(new CompareTask(null, newFile, false, context));
 					}
 				} 
 			}
 		}
 		
+		diffDirectory.addResults(tasks, context.parallel);
+		
 		//Check if we need to changed this directory status to changed
 		diffDirectory.setNewStatusIfNeeded();
 		
@@ -198,6 +280,133 @@ public class DiffDirectory {
 		return diffDirectory;
 	}
 	
+	/**
+	 * Execute the comparison tasks and add their results to this directory, in the order of the tasks
+	 * @param tasks Comparison tasks of the files and sub directories
+	 * @param parallel True if the tasks must be forked
+	 * @throws IOException
+	 */
+	private void addResults(List<CompareTask> tasks, boolean parallel) throws IOException {
+		try {
+			if (parallel) {
+				ForkJoinTask.invokeAll(tasks);
+			} else {
+				for(CompareTask task : tasks) {
+					task.invoke();
+				}
+			}
+			
+			for(CompareTask task : tasks) {
+				Object result = task.join();
+				
+				if (result instanceof DiffFile) {
+					addFile((DiffFile) result);
+				} else {
+					addDirectory((DiffDirectory) result);
+				}
+			}
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+	
+	/**
+	 * Settings shared by all tasks of a comparison
+	 */
+	private static class CompareContext {
+		
+		/**
+		 * Source of the original directory
+		 */
+		private final SourceProvider originalSource;
+		
+		/**
+		 * Source of the revised directory
+		 */
+		private final SourceProvider revisedSource;
+		
+		/**
+		 * Absolute paths of the revised files which may have changed, null if all files must be compared
+		 */
+		private final Set<String> changedFiles;
+		
+		/**
+		 * True if the sub tasks of a directory comparison must be forked
+		 */
+		private final boolean parallel;
+		
+		/**
+		 * Construct the settings of a comparison
+		 * @param originalSource
+		 * @param revisedSource
+		 * @param changedFiles
+		 * @param parallel
+		 */
+		public CompareContext(SourceProvider originalSource, SourceProvider revisedSource, Set<String> changedFiles, boolean parallel) {
+			this.originalSource = originalSource;
+			this.revisedSource = revisedSource;
+			this.changedFiles = changedFiles;
+			this.parallel = parallel;
+		}
+	}
+	
+	/**
+	 * Task which compares either a file pair or a directory pair, the result is
+	 * the DiffFile or the DiffDirectory of the comparison
+	 */
+	@SuppressWarnings("serial")
+	private static class CompareTask extends RecursiveTask<Object> {
+		
+		/**
+		 * Original file or directory name, null if it does not exist
+		 */
+		private String originalName;
+		
+		/**
+		 * Revised file or directory name, null if it does not exist
+		 */
+		private String revisedName;
+		
+		/**
+		 * True if directories are compared, false for files
+		 */
+		private boolean directory;
+		
+		/**
+		 * Settings of the comparison
+		 */
+		private CompareContext context;
+		
+		/**
+		 * Construct a new comparison task
+		 * @param originalName
+		 * @param revisedName
+		 * @param directory
+		 * @param context
+		 */
+		public CompareTask(String originalName, String revisedName, boolean directory, CompareContext context) {
+			this.originalName = originalName;
+			this.revisedName = revisedName;
+			this.directory = directory;
+			this.context = context;
+		}
+
+		@Override
+		protected Object compute() {
+			try {
+				if (directory) {
+					return compareDirectory(originalName, revisedName, context);
+				} else if (context.changedFiles != null && originalName != null && revisedName != null && !context.changedFiles.contains(revisedName)) {
+					return DiffFile.unchangedFile(originalName, revisedName, context.originalSource, context.revisedSource);
+				} else {
+					return DiffFile.compareFile(originalName, revisedName, context.originalSource, context.revisedSource);
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+	
 	
 	/**
 	 * Set the status to CHANGED if any directory or file within this directory is changed
@@ -221,17 +430,18 @@ public class DiffDirectory {
 	/**
 	 * File a deleted directory with state deleted, only states DELETED or NEW are accepted
 	 * @param fileDiffDirectory
+	 * @param context Sources and parallelism of the comparison
 	 * @return
 	 * @throws IOException 
 	 */
-	private static DiffDirectory fillDirectoryDiff(String directory, SourceDiffState state) throws IOException {
+	private static DiffDirectory fillDirectoryDiff(String directory, SourceDiffState state, CompareContext context) throws IOException {
 	
-		File dir = new File(directory);
+		SourceProvider source = state.equals(SourceDiffState.DELETED) ? context.originalSource : context.revisedSource;
 		
-		File[] files = dir.listFiles();
+		String[] files = source.list(directory);
 		Arrays.sort(files);
 		
-		List<File> filesWithinDirectory = Arrays.asList(files);
+		List<String> filesWithinDirectory = Arrays.asList(files);
 		
 		// Create the instance
 		DiffDirectory diffDirectory = new DiffDirectory(directory, "", state);
@@ -241,27 +451,24 @@ public class DiffDirectory {
 			diffDirectory = new DiffDirectory("", directory, state);
 		}
 		
-		for(File file : filesWithinDirectory) {
+		List<CompareTask> tasks = new ArrayList<CompareTask>();
+		
+		for(String fileName : filesWithinDirectory) {
+			String file = new File(directory, fileName).getAbsolutePath();
 			
-			if (file.isHidden()) {
+			if (source.isHidden(file)) {
 				continue;
 			}
 			
-			if (file.isFile()) {
-				if (state.equals(SourceDiffState.DELETED)) {
-					diffDirectory.addFile(DiffFile.compareFile(file.getAbsolutePath(), null));
-				} else {
-					diffDirectory.addFile(DiffFile.compareFile(null, file.getAbsolutePath()));
-				}
+			if (state.equals(SourceDiffState.DELETED)) {
+				tasks.add(new CompareTask(file, null, source.isDirectory(file), context));
 			} else {
-				if (state.equals(SourceDiffState.DELETED)) {
-					diffDirectory.addDirectory(DiffDirectory.compareDirectory(file.getAbsolutePath(), null));
-				} else {
-					diffDirectory.addDirectory(DiffDirectory.compareDirectory(null, file.getAbsolutePath()));
-				}
+				tasks.add(new CompareTask(null, file, source.isDirectory(file), context));
 			}
 		}
 		
+		diffDirectory.addResults(tasks, context.parallel);
+		
 		return diffDirectory;
 	}
 	
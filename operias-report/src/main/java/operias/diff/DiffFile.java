@@ -1,9 +1,13 @@
 package operias.diff;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -42,14 +46,44 @@ public class DiffFile {
 	private List<Delta> changes;
 	
 	/**
-	 * The amount of lines in the file
+	 * The changes sorted by their position in the original file, used to look up changes by position
+	 */
+	private Delta[] changeIndex;
+	
+	/**
+	 * The amount of lines in the file, a negative value if it still needs to be counted
 	 */
 	private int originalLineCount;
 	
 	/**
-	 * The amount of lines in the file
+	 * The amount of lines in the file, a negative value if it still needs to be counted
 	 */
 	private int revisedLineCount;
+	
+	/**
+	 * Files up to this size are compared by reading them completely, larger files are memory mapped
+	 */
+	private static final long MAPPED_COMPARE_THRESHOLD = 64 * 1024;
+	
+	/**
+	 * Size of the memory mapped regions used to compare large files
+	 */
+	private static final long MAPPED_COMPARE_CHUNK_SIZE = 8 * 1024 * 1024;
+	
+	/**
+	 * Source of files which are read from the file system
+	 */
+	private static final SourceProvider FILE_SYSTEM = new FileSystemSourceProvider();
+	
+	/**
+	 * Source of the original file, used to count the lines when needed
+	 */
+	private SourceProvider originalSource = FILE_SYSTEM;
+	
+	/**
+	 * Source of the revised file, used to count the lines when needed
+	 */
+	private SourceProvider revisedSource = FILE_SYSTEM;
 
 	/**
 	 * Construct a new file for the file diff report
@@ -75,38 +109,41 @@ public class DiffFile {
 	}
 	
 	/**
-	 * Create a list of strings from a file
-	 * @param filename File name
-	 * @return List of string in the file
+	 * Compare two files, the original one against the new one
+	 * @param originalFile 
+	 * @param newFile
 	 * @throws IOException 
 	 */
-	private static List<String> fileToLines(String filename) {
-        List<String> lines = new LinkedList<String>();
-        String line = "";
-        
-        try {
-	        BufferedReader in = new BufferedReader(new FileReader(filename));
-	        while ((line = in.readLine()) != null) {
-	                lines.add(line);
-	        }
-	        
-	        in.close();
-        } catch(Exception e) {
-        }
-        
-        return lines;
+	public static DiffFile compareFile(String originalFileName, String revisedFileName) throws IOException {
+		return compareFile(originalFileName, revisedFileName, FILE_SYSTEM, FILE_SYSTEM);
 	}
 	
 	/**
-	 * Compare two files, the original one against the new one
-	 * @param originalFile 
-	 * @param newFile
+	 * Compare two files, the original one against the new one, reading them from the given sources
+	 * @param originalFileName
+	 * @param revisedFileName
+	 * @param originalSource Source of the original file
+	 * @param revisedSource Source of the revised file
 	 * @throws IOException 
 	 */
-	public static DiffFile compareFile(String originalFileName, String revisedFileName) throws IOException {
+	public static DiffFile compareFile(String originalFileName, String revisedFileName, SourceProvider originalSource, SourceProvider revisedSource) throws IOException {
 		
-		List<String> originalFileList = fileToLines(originalFileName);
-		List<String> newFileList = fileToLines(revisedFileName);
+		String originalContentID = originalSource.getContentID(originalFileName);
+		String revisedContentID = revisedSource.getContentID(revisedFileName);
+		
+		if (originalContentID != null && revisedContentID != null) {
+			if (originalContentID.equals(revisedContentID)) {
+				// Identified as the same content, no need to read the files
+				return unchangedFile(originalFileName, revisedFileName, originalSource, revisedSource);
+			}
+		} else if (originalSource instanceof FileSystemSourceProvider && revisedSource instanceof FileSystemSourceProvider
+				&& haveEqualContent(originalFileName, revisedFileName)) {
+			// No need to read the lines and diff them. Other sources may not match the files on disk, so they are always read
+			return unchangedFile(originalFileName, revisedFileName, originalSource, revisedSource);
+		}
+		
+		List<String> originalFileList = originalSource.readLines(originalFileName);
+		List<String> newFileList = revisedSource.readLines(revisedFileName);
 		
 		DiffFile diffFile = new DiffFile(originalFileName, revisedFileName, originalFileList.size(), newFileList.size());
 		
@@ -116,6 +153,97 @@ public class DiffFile {
 		
 		return diffFile;
 	}
+	
+	/**
+	 * Create the diff of two files which are known to have the same content, the line counts are determined when needed
+	 * @param originalFileName
+	 * @param revisedFileName
+	 * @return A diff file without changes
+	 */
+	public static DiffFile unchangedFile(String originalFileName, String revisedFileName) {
+		return unchangedFile(originalFileName, revisedFileName, FILE_SYSTEM, FILE_SYSTEM);
+	}
+	
+	/**
+	 * Create the diff of two files which are known to have the same content, the line counts are read from the sources when needed
+	 * @param originalFileName
+	 * @param revisedFileName
+	 * @param originalSource Source of the original file
+	 * @param revisedSource Source of the revised file
+	 * @return A diff file without changes
+	 */
+	public static DiffFile unchangedFile(String originalFileName, String revisedFileName, SourceProvider originalSource, SourceProvider revisedSource) {
+		DiffFile diffFile = new DiffFile(originalFileName, revisedFileName, -1, -1);
+		diffFile.setChanges(new LinkedList<Delta>());
+		diffFile.originalSource = originalSource;
+		diffFile.revisedSource = revisedSource;
+		
+		return diffFile;
+	}
+	
+	/**
+	 * Count the lines of a file
+	 * @param source
+	 * @param fileName
+	 * @return The amount of lines, 0 if the file could not be read
+	 */
+	private static int countLines(SourceProvider source, String fileName) {
+		try {
+			return source.readLines(fileName).size();
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Check if both files exist and are byte for byte the same. Empty files are never considered equal,
+	 * as they are marked as new files by the line based comparison.
+	 * @param originalFileName
+	 * @param revisedFileName
+	 * @return True if the content of the files is equal
+	 */
+	private static boolean haveEqualContent(String originalFileName, String revisedFileName) {
+		if (originalFileName == null || revisedFileName == null) {
+			return false;
+		}
+		
+		File originalFile = new File(originalFileName);
+		File revisedFile = new File(revisedFileName);
+		
+		if (!originalFile.isFile() || !revisedFile.isFile()) {
+			return false;
+		}
+		
+		long size = originalFile.length();
+		if (size == 0 || size != revisedFile.length()) {
+			return false;
+		}
+		
+		try {
+			if (size <= MAPPED_COMPARE_THRESHOLD) {
+				return Arrays.equals(Files.readAllBytes(originalFile.toPath()), Files.readAllBytes(revisedFile.toPath()));
+			}
+			
+			try (FileChannel originalChannel = FileChannel.open(originalFile.toPath(), StandardOpenOption.READ);
+					FileChannel revisedChannel = FileChannel.open(revisedFile.toPath(), StandardOpenOption.READ)) {
+				
+				for(long position = 0; position < size; position += MAPPED_COMPARE_CHUNK_SIZE) {
+					long chunkSize = Math.min(MAPPED_COMPARE_CHUNK_SIZE, size - position);
+					MappedByteBuffer originalBuffer = originalChannel.map(FileChannel.MapMode.READ_ONLY, position, chunkSize);
+					MappedByteBuffer revisedBuffer = revisedChannel.map(FileChannel.MapMode.READ_ONLY, position, chunkSize);
+					
+					if (!originalBuffer.equals(revisedBuffer)) {
+						return false;
+					}
+				}
+			}
+			
+			return true;
+		} catch (IOException e) {
+			// Let the line based comparison decide
+			return false;
+		}
+	}
 
 	/**
 	 * @return the fileName
@@ -155,29 +283,118 @@ public class DiffFile {
 		}
 		
 		this.changes = changes;
+		this.changeIndex = null;
 	}
 	
 	/**
-	 * Get the delta for the original line number
+	 * Get the changes sorted by their position in the original file, the index is rebuilt when the changes were modified
+	 * @return Sorted array of changes
+	 */
+	private Delta[] getChangeIndex() {
+		if (changeIndex == null || changeIndex.length != changes.size()) {
+			changeIndex = changes.toArray(new Delta[changes.size()]);
+			Arrays.sort(changeIndex, new Comparator<Delta>() {
+				@Override
+				public int compare(Delta first, Delta second) {
+					return Integer.compare(first.getOriginal().getPosition(), second.getOriginal().getPosition());
+				}
+			});
+		}
+		
+		return changeIndex;
+	}
+	
+	/**
+	 * Get the delta which starts at the given original and revised line number
 	 * @param originalLineNumber Line number for the original file
-	 * @return
+	 * @param revisedLineNumber Line number for the revised file
+	 * @return The delta, or null if no delta starts at these line numbers
 	 */
 	public Delta tryGetChange(int originalLineNumber, int revisedLineNumber) {
-		for(Delta change : changes) {
-			if (change.getOriginal().getPosition() == originalLineNumber && change.getRevised().getPosition() == revisedLineNumber) {
-				return change;
-			} else if (change.getOriginal().getPosition() > originalLineNumber && change.getRevised().getPosition() > revisedLineNumber) {
-				break;
+		Delta[] index = getChangeIndex();
+		
+		// Binary search for the first change at or after the original line number
+		int low = 0;
+		int high = index.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (index[middle].getOriginal().getPosition() < originalLineNumber) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		
+		for(int i = low; i < index.length && index[i].getOriginal().getPosition() == originalLineNumber; i++) {
+			if (index[i].getRevised().getPosition() == revisedLineNumber) {
+				return index[i];
 			}
 		}
 		
 		return null;
 	}
+	
+	/**
+	 * Get a cursor over the changes, which can be used when the lines of the file are visited in increasing order
+	 * @return A new change cursor, positioned at the first change
+	 */
+	public ChangeCursor getChangeCursor() {
+		return new ChangeCursor(getChangeIndex());
+	}
+	
+	/**
+	 * Forward only cursor over the changes of a file. The line numbers passed to the cursor may never decrease,
+	 * changes which start before the requested original line number are skipped for good.
+	 */
+	public static class ChangeCursor {
+		
+		/**
+		 * Changes sorted by their position in the original file
+		 */
+		private Delta[] index;
+		
+		/**
+		 * Position of the cursor in the index
+		 */
+		private int position;
+		
+		/**
+		 * Construct a new cursor over the sorted changes
+		 * @param index
+		 */
+		private ChangeCursor(Delta[] index) {
+			this.index = index;
+			this.position = 0;
+		}
+		
+		/**
+		 * Get the delta which starts at the given original and revised line number
+		 * @param originalLineNumber Line number for the original file
+		 * @param revisedLineNumber Line number for the revised file
+		 * @return The delta, or null if no delta starts at these line numbers
+		 */
+		public Delta tryGetChange(int originalLineNumber, int revisedLineNumber) {
+			while (position < index.length && index[position].getOriginal().getPosition() < originalLineNumber) {
+				position++;
+			}
+			
+			for(int i = position; i < index.length && index[i].getOriginal().getPosition() == originalLineNumber; i++) {
+				if (index[i].getRevised().getPosition() == revisedLineNumber) {
+					return index[i];
+				}
+			}
+			
+			return null;
+		}
+	}
 
 	/**
 	 * @return the originalLineCount
 	 */
 	public int getOriginalLineCount() {
+		if (originalLineCount < 0) {
+			originalLineCount = countLines(originalSource, originalFileName);
+		}
 		return originalLineCount;
 	}
 
@@ -185,6 +402,9 @@ public class DiffFile {
 	 * @return the revisedLineCount
 	 */
 	public int getRevisedLineCount() {
+		if (revisedLineCount < 0) {
+			revisedLineCount = countLines(revisedSource, revisedFileName);
+		}
 		return revisedLineCount;
 	}
 	
@@ -4,8 +4,12 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
+import operias.Configuration;
 import operias.Main;
+import operias.git.Git;
 
 /**
  * A source diff report containing 1 DiffDirectory which includes the source diff changes for the complete project
@@ -41,11 +45,85 @@ public class DiffReport {
 		
 
 		Main.printLine("[Info] [" + Thread.currentThread().getName() + "] Comparing directory \"" +revisedDirectory + "\" to \"" + originalDirectory+ "\"");
-		changedFiles = DiffDirectory.compareDirectory(originalDirectory, revisedDirectory);
+		
+		// Null when all files must be compared
+		Set<String> changedFiles = null;
+		if (Configuration.isGitChangedFilesEnabled()) {
+			try {
+				changedFiles = Git.changedFiles(originalDirectory, revisedDirectory);
+				Main.printLine("[Info] [" + Thread.currentThread().getName() + "] Git reported " + changedFiles.size() + " changed files");
+			} catch (Exception e) {
+				Main.printLine("[Warning] [" + Thread.currentThread().getName() + "] Could not list the changed files through git, comparing all files");
+			}
+		}
+		
+		SourceProvider originalSource = new FileSystemSourceProvider();
+		SourceProvider revisedSource = new FileSystemSourceProvider();
+		if (Configuration.isGitSourcesEnabled()) {
+			originalSource = createGitSourceProvider(originalDirectory);
+			revisedSource = createGitSourceProvider(revisedDirectory);
+		}
+		
+		try {
+			int parallelism = Configuration.getDiffParallelism();
+			if (parallelism > 1) {
+				ForkJoinPool pool = new ForkJoinPool(parallelism);
+				try {
+					this.changedFiles = DiffDirectory.compareDirectory(originalDirectory, revisedDirectory, originalSource, revisedSource, changedFiles, pool);
+				} finally {
+					pool.shutdown();
+				}
+			} else {
+				this.changedFiles = DiffDirectory.compareDirectory(originalDirectory, revisedDirectory, originalSource, revisedSource, changedFiles, null);
+			}
+		} finally {
+			originalSource.close();
+			revisedSource.close();
+		}
 		Main.printLine("[Info] [" + Thread.currentThread().getName() + "] Done comparing directories");
 		
 	}
 
+	/**
+	 * Create a source provider for the commit checked out in the directory, reading the files from the git objects.
+	 * The directory may be a worktree. Directories which operias checked out itself, within the temporary directory,
+	 * are read from their commit as they are. Other directories may not contain uncommitted changes to java files,
+	 * as those changes are not part of the commit. If the git objects can not be used, the files are read from the directory.
+	 * @param directory Root directory of a git checkout, may be null
+	 * @return The source provider
+	 */
+	private SourceProvider createGitSourceProvider(String directory) {
+		if (directory == null) {
+			return new FileSystemSourceProvider();
+		}
+		
+		try {
+			String gitDirectory = Git.getGitDirectory(directory);
+			
+			if (!isWithinTemporaryDirectory(directory) && !Git.isClean(directory)) {
+				throw new Exception("\"" + directory + "\" contains uncommitted changes");
+			}
+			
+			SourceProvider provider = new GitSourceProvider(directory, gitDirectory, Git.getHeadCommitID(directory), Git.getBackend());
+			Main.printLine("[Info] [" + Thread.currentThread().getName() + "] Reading the sources of \"" + directory + "\" from the git objects");
+			return provider;
+		} catch (Exception e) {
+			Main.printLine("[Warning] [" + Thread.currentThread().getName() + "] Could not read the sources of \"" + directory + "\" from git, reading them from the directory: " + e.getMessage());
+			return new FileSystemSourceProvider();
+		}
+	}
+	
+	/**
+	 * Check if the directory is within the temporary directory, in which operias checks out the repositories it clones
+	 * @param directory
+	 * @return True if the directory is within the temporary directory
+	 * @throws IOException
+	 */
+	private boolean isWithinTemporaryDirectory(String directory) throws IOException {
+		String temporaryDirectory = new File(Configuration.getTemporaryDirectory()).getCanonicalPath() + File.separator;
+		return new File(directory).getCanonicalPath().startsWith(temporaryDirectory);
+	}
+	
 	/**
 	 * @return the originalDirectory
 	 */
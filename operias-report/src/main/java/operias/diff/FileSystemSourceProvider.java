@@ -0,0 +1,67 @@
+package operias.diff;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Provides the source files from the file system
+ */
+public class FileSystemSourceProvider implements SourceProvider {
+
+	@Override
+	public String[] list(String directoryName) {
+		return new File(directoryName).list();
+	}
+
+	@Override
+	public boolean isDirectory(String name) {
+		return new File(name).isDirectory();
+	}
+
+	@Override
+	public boolean isHidden(String name) {
+		return new File(name).isHidden();
+	}
+
+	/**
+	 * Create a list of strings from a file
+	 * @param filename File name
+	 * @return List of string in the file
+	 */
+	@Override
+	public List<String> readLines(String fileName) {
+		List<String> lines = new LinkedList<String>();
+		String line = "";
+		
+		try {
+			BufferedReader in = new BufferedReader(new FileReader(fileName));
+			while ((line = in.readLine()) != null) {
+				lines.add(line);
+			}
+			
+			in.close();
+		} catch(Exception e) {
+		}
+		
+		return lines;
+	}
+
+	/**
+	 * The content of files is not identified, files need to be compared
+	 */
+	@Override
+	public String getContentID(String fileName) {
+		return null;
+	}
+
+	/**
+	 * Nothing is kept open between reading the files
+	 */
+	@Override
+	public void close() {
+		
+	}
+}
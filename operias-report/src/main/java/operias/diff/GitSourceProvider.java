@@ -0,0 +1,199 @@
+package operias.diff;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import operias.git.BlobReader;
+import operias.git.GitBackend;
+
+/**
+ * Provides the source files of a commit from the object database of a git repository,
+ * as if the commit is checked out in a root directory, by default the root directory of the repository
+ */
+public class GitSourceProvider implements SourceProvider {
+
+	/**
+	 * Directory of the repository, either its root directory or its git directory
+	 */
+	private File repository;
+	
+	/**
+	 * Directory in which the commit is considered to be checked out
+	 */
+	private File root;
+	
+	/**
+	 * Backend used to read the blobs
+	 */
+	private GitBackend backend;
+	
+	/**
+	 * Reader used for the blobs while comparing, opened when the first blob is read
+	 */
+	private BlobReader blobReader;
+	
+	/**
+	 * True once the provider was closed, blobs are then read without keeping the repository open
+	 */
+	private boolean closed;
+	
+	/**
+	 * Blob ids of the files, by their absolute path
+	 */
+	private Map<String, String> files;
+	
+	/**
+	 * Names of the entries within every directory, by the absolute path of the directory
+	 */
+	private Map<String, Set<String>> directories;
+	
+	/**
+	 * Construct a provider for the commit, listing the complete tree of the commit
+	 * @param repositoryDirectory Root directory of the repository
+	 * @param revision Commit id, branch name or other revision
+	 * @param backend Backend used to access the repository
+	 * @throws Exception If the tree could not be listed
+	 */
+	public GitSourceProvider(String repositoryDirectory, String revision, GitBackend backend) throws Exception {
+		this(repositoryDirectory, repositoryDirectory, revision, backend);
+	}
+	
+	/**
+	 * Construct a provider for the commit as if it is checked out in the given root directory, such as a worktree
+	 * of the repository, listing the complete tree of the commit
+	 * @param rootDirectory Directory in which the commit is considered to be checked out
+	 * @param repositoryDirectory Root directory or git directory of the repository containing the commit
+	 * @param revision Commit id, branch name or other revision
+	 * @param backend Backend used to access the repository
+	 * @throws Exception If the tree could not be listed
+	 */
+	public GitSourceProvider(String rootDirectory, String repositoryDirectory, String revision, GitBackend backend) throws Exception {
+		this.root = new File(rootDirectory).getAbsoluteFile();
+		this.repository = new File(repositoryDirectory).getAbsoluteFile();
+		this.backend = backend;
+		this.files = new HashMap<String, String>();
+		this.directories = new HashMap<String, Set<String>>();
+		
+		directories.put(root.getAbsolutePath(), new TreeSet<String>());
+		
+		for(Map.Entry<String, String> entry : backend.listTree(repository, revision).entrySet()) {
+			File file = new File(root, entry.getKey());
+			files.put(file.getAbsolutePath(), entry.getValue());
+			
+			// Register the file and all its parent directories within their parent
+			File child = file;
+			File parent = file.getParentFile();
+			while (true) {
+				Set<String> entries = directories.get(parent.getAbsolutePath());
+				boolean known = entries != null;
+				if (!known) {
+					entries = new TreeSet<String>();
+					directories.put(parent.getAbsolutePath(), entries);
+				}
+				entries.add(child.getName());
+				
+				if (known || parent.equals(root)) {
+					break;
+				}
+				child = parent;
+				parent = parent.getParentFile();
+			}
+		}
+	}
+	
+	@Override
+	public String[] list(String directoryName) {
+		Set<String> entries = directories.get(new File(directoryName).getAbsolutePath());
+		
+		if (entries == null) {
+			return null;
+		}
+		
+		return entries.toArray(new String[entries.size()]);
+	}
+
+	@Override
+	public boolean isDirectory(String name) {
+		return directories.containsKey(new File(name).getAbsolutePath());
+	}
+
+	@Override
+	public boolean isHidden(String name) {
+		return new File(name).getName().startsWith(".");
+	}
+
+	@Override
+	public List<String> readLines(String fileName) throws IOException {
+		List<String> lines = new LinkedList<String>();
+		
+		String blobID = getContentID(fileName);
+		if (blobID == null) {
+			return lines;
+		}
+		
+		byte[] content;
+		try {
+			BlobReader reader = getBlobReader();
+			content = reader == null ? backend.readBlob(repository, blobID) : reader.readBlob(blobID);
+		} catch (Exception e) {
+			throw new IOException("Could not read blob " + blobID + " of \"" + fileName + "\"", e);
+		}
+		
+		// Decode the same way as a file which is read from the file system
+		BufferedReader in = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(content)));
+		String line;
+		while ((line = in.readLine()) != null) {
+			lines.add(line);
+		}
+		in.close();
+		
+		return lines;
+	}
+
+	/**
+	 * Get the reader for the blobs, opening it if needed
+	 * @return The reader, or null if the provider was closed
+	 * @throws Exception If the reader could not be opened
+	 */
+	private synchronized BlobReader getBlobReader() throws Exception {
+		if (blobReader == null && !closed) {
+			blobReader = backend.openBlobReader(repository);
+		}
+		
+		return blobReader;
+	}
+	
+	/**
+	 * Close the reader of the blobs
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		closed = true;
+		
+		if (blobReader != null) {
+			blobReader.close();
+			blobReader = null;
+		}
+	}
+
+	/**
+	 * The blob id of the file is used to identify its content
+	 */
+	@Override
+	public String getContentID(String fileName) {
+		if (fileName == null) {
+			return null;
+		}
+		
+		return files.get(new File(fileName).getAbsolutePath());
+	}
+}
@@ -0,0 +1,47 @@
+package operias.diff;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Provides the source files of a directory which is compared. All names are absolute paths,
+ * or relative to the working directory. The provider is closed when the comparison ends,
+ * files which are read afterwards may be read less efficiently.
+ */
+public interface SourceProvider extends Closeable {
+
+	/**
+	 * List the names of the files and directories within a directory
+	 * @param directoryName
+	 * @return The names of the entries, or null if it is not a directory
+	 */
+	String[] list(String directoryName);
+	
+	/**
+	 * @param name
+	 * @return True if the name refers to a directory
+	 */
+	boolean isDirectory(String name);
+	
+	/**
+	 * @param name
+	 * @return True if the file or directory is hidden, hidden files are not compared
+	 */
+	boolean isHidden(String name);
+	
+	/**
+	 * Read the lines of a file
+	 * @param fileName
+	 * @return The lines of the file, empty if the file does not exist
+	 * @throws IOException
+	 */
+	List<String> readLines(String fileName) throws IOException;
+	
+	/**
+	 * Get an identifier of the content of a file, files with the same identifier have the same content
+	 * @param fileName
+	 * @return The identifier, or null if it is unknown
+	 */
+	String getContentID(String fileName);
+}
@@ -0,0 +1,18 @@
+package operias.git;
+
+import java.io.Closeable;
+
+/**
+ * Reads blobs of a single repository, keeping the repository open between the reads.
+ * Blobs can be read by multiple threads at the same time.
+ */
+public interface BlobReader extends Closeable {
+
+	/**
+	 * Read the content of a blob
+	 * @param blobID Id of the blob
+	 * @return The content of the blob
+	 * @throws Exception
+	 */
+	byte[] readBlob(String blobID) throws Exception;
+}
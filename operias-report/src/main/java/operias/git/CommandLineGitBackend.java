@@ -0,0 +1,187 @@
+package operias.git;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+import operias.Configuration;
+import operias.ProcessControl;
+
+/**
+ * Git backend which executes the git command for every operation
+ */
+public class CommandLineGitBackend implements GitBackend {
+
+	@Override
+	public void clone(String URL, File destination) throws Exception {
+		ProcessBuilder builder = new ProcessBuilder("git","clone", URL, destination.getAbsolutePath());
+
+		ProcessControl run = ProcessControl.getCurrentRun();
+		Process process = run.start(builder);
+		int exitValue = run.waitFor(process, Configuration.getGitTimeout(), "git clone");
+		
+		if (exitValue != 0) {
+			throw new Exception(exitValue + "");
+		}
+	}
+
+	@Override
+	public void fetch(File repository) throws Exception {
+		Git.execute(repository, "fetch", "--quiet", "origin");
+	}
+
+	@Override
+	public void checkout(File repository, String commitOrBranch) throws Exception {
+		ProcessBuilder builder = new ProcessBuilder("git","--git-dir", repository.getAbsolutePath() + "/.git/", "--work-tree", repository.getAbsolutePath() , "checkout", "-f", commitOrBranch);
+
+		ProcessControl run = ProcessControl.getCurrentRun();
+		Process process = run.start(builder);
+		int exitValue = run.waitFor(process, Configuration.getGitTimeout(), "git checkout");
+		
+		if (exitValue != 0) {
+			throw new Exception(exitValue + "");
+		}
+	}
+
+	@Override
+	public Map<String, String> listTree(File repository, String revision) throws Exception {
+		String output = Git.execute(repository, "ls-tree", "-r", "-z", "--full-tree", revision);
+		
+		// Every entry is formatted as "<mode> <type> <id>\t<path>" and terminated by a NUL character
+		Map<String, String> files = new HashMap<String, String>();
+		for(String entry : output.split("\0")) {
+			int tab = entry.indexOf('\t');
+			if (tab < 0) {
+				continue;
+			}
+			
+			String[] properties = entry.substring(0, tab).split(" ");
+			if (properties[1].equals("blob")) {
+				files.put(entry.substring(tab + 1), properties[2]);
+			}
+		}
+		
+		return files;
+	}
+
+	@Override
+	public byte[] readBlob(File repository, String blobID) throws Exception {
+		return Git.executeForBytes(repository, "cat-file", "blob", blobID);
+	}
+	
+	@Override
+	public BlobReader openBlobReader(File repository) throws Exception {
+		return new BatchBlobReader(repository);
+	}
+	
+	/**
+	 * Reads blobs through a single git cat-file process, which receives the blob ids on its input
+	 */
+	private static class BatchBlobReader implements BlobReader {
+		
+		/**
+		 * Run which started the process
+		 */
+		private final ProcessControl run;
+		
+		/**
+		 * The running cat-file process
+		 */
+		private final Process process;
+		
+		/**
+		 * Input of the process, one blob id per line
+		 */
+		private final OutputStream requests;
+		
+		/**
+		 * Output of the process, a header line followed by the content for every blob
+		 */
+		private final InputStream responses;
+		
+		/**
+		 * Start the cat-file process
+		 * @param repository
+		 * @throws IOException
+		 */
+		public BatchBlobReader(File repository) throws IOException {
+			ProcessBuilder builder = new ProcessBuilder("git", "cat-file", "--batch");
+			builder.directory(repository);
+			builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+			
+			run = ProcessControl.getCurrentRun();
+			process = run.start(builder);
+			requests = new BufferedOutputStream(process.getOutputStream());
+			responses = new BufferedInputStream(process.getInputStream());
+		}
+		
+		@Override
+		public synchronized byte[] readBlob(String blobID) throws Exception {
+			requests.write((blobID + "\n").getBytes("UTF-8"));
+			requests.flush();
+			
+			// The header is formatted as "<id> <type> <size>", or "<id> missing" for an unknown blob
+			String[] header = readHeader().split(" ");
+			if (header.length != 3 || !header[1].equals("blob")) {
+				throw new Exception("Could not read blob " + blobID);
+			}
+			
+			byte[] content = new byte[Integer.parseInt(header[2])];
+			int offset = 0;
+			while (offset < content.length) {
+				int read = responses.read(content, offset, content.length - offset);
+				if (read < 0) {
+					throw new EOFException("git cat-file ended while reading blob " + blobID);
+				}
+				offset += read;
+			}
+			
+			// The content is followed by a line feed
+			responses.read();
+			
+			return content;
+		}
+		
+		/**
+		 * Read the header line of the next response
+		 * @return The header, without the line feed
+		 * @throws IOException
+		 */
+		private String readHeader() throws IOException {
+			ByteArrayOutputStream header = new ByteArrayOutputStream();
+			int character;
+			while ((character = responses.read()) != '\n') {
+				if (character < 0) {
+					throw new EOFException("git cat-file ended while reading a header");
+				}
+				header.write(character);
+			}
+			
+			return header.toString("UTF-8");
+		}
+		
+		@Override
+		public synchronized void close() throws IOException {
+			// The process ends when its input is closed
+			requests.close();
+			
+			try {
+				run.waitFor(process, Configuration.getGitTimeout(), "git cat-file");
+			} catch (TimeoutException e) {
+				throw new IOException(e.getMessage(), e);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				responses.close();
+			}
+		}
+	}
+}
@@ -1,10 +1,19 @@
 package operias.git;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import operias.Configuration;
 import operias.Main;
+import operias.ProcessControl;
 
 
 public class Git {
@@ -19,24 +28,148 @@ public class Git {
 	public static String clone(String URL) throws Exception {
 		File tempDirectory = new File(Configuration.getTemporaryDirectory() + "/" + Calendar.getInstance().getTime().getTime() + "");
 		
+		if (Configuration.getGitCacheDirectory() != null) {
+			GitCache.clone(URL, tempDirectory);
+			Main.printLine("[Info] Cloning succesfull!");
+			return tempDirectory.getAbsolutePath();
+		}
+		
 		Main.printLine("[Info] Cloning from \"" +URL+ "\"");
-		ProcessBuilder builder = new ProcessBuilder("git","clone", URL, tempDirectory.getAbsolutePath());
-
-		Process process = null;
+		getBackend().clone(URL, tempDirectory);
+		Main.printLine("[Info] Cloning succesfull!");
+		
+		return tempDirectory.getAbsolutePath();
+	}
+	
+	/**
+	 * Clone only the given revisions of the repository url to a temporary directory, without checking out any of them.
+	 * The history is limited to the configured shallow depth and, if sparse paths are configured, only the
+	 * files within those paths are checked out and downloaded.
+	 * @param URL Repository url
+	 * @param revisions Commit ids or branch names, null for the default branch
+	 * @return The location of the temporary directory
+	 * @throws Exception 
+	 */
+	public static String cloneRevisions(String URL, String... revisions) throws Exception {
+		File tempDirectory = new File(Configuration.getTemporaryDirectory() + "/" + Calendar.getInstance().getTime().getTime() + "");
+		tempDirectory.mkdirs();
 		
-		process = builder.start();
-		process.waitFor();
+		Main.printLine("[Info] Cloning " + revisions.length + " revision(s) from \"" +URL+ "\"");
+		execute(tempDirectory, "init", "-q");
+		execute(tempDirectory, "remote", "add", "origin", URL);
 		
-		int exitValue = process.exitValue();
+		List<String> fetchArguments = new ArrayList<String>(Arrays.asList("fetch", "-q"));
+		if (Configuration.getShallowDepth() > 0) {
+			fetchArguments.add("--depth");
+			fetchArguments.add(Configuration.getShallowDepth() + "");
+		}
 		
-		process.destroy();
+		if (Configuration.getSparsePaths() != null) {
+			setSparsePaths(tempDirectory);
+			
+			// Only download the blobs of the checked out files, the others are fetched on demand
+			execute(tempDirectory, "config", "remote.origin.promisor", "true");
+			execute(tempDirectory, "config", "remote.origin.partialclonefilter", "blob:none");
+			fetchArguments.add("--filter=blob:none");
+		}
 		
-		if (exitValue == 0) {
-			Main.printLine("[Info] Cloning succesfull!");
-			return tempDirectory.getAbsolutePath();
+		fetchArguments.add("origin");
+		for(String revision : revisions) {
+			if (revision == null) {
+				fetchArguments.add("+HEAD:refs/remotes/origin/HEAD");
+			} else if (revision.matches("[0-9a-fA-F]{40}")) {
+				fetchArguments.add(revision);
+			} else {
+				fetchArguments.add("+refs/heads/" + revision + ":refs/remotes/origin/" + revision);
+			}
+		}
+		
+		execute(tempDirectory, fetchArguments.toArray(new String[fetchArguments.size()]));
+		Main.printLine("[Info] Cloning succesfull!");
+		
+		return tempDirectory.getAbsolutePath();
+	}
+	
+	/**
+	 * Get the name under which a revision is known after cloning it with cloneRevisions
+	 * @param revision Commit id or branch name, null for the default branch
+	 * @return The name which can be checked out
+	 */
+	public static String getClonedRevision(String revision) {
+		if (revision == null) {
+			return "origin/HEAD";
+		} else if (revision.matches("[0-9a-fA-F]{40}")) {
+			return revision;
 		} else {
-			throw new Exception(exitValue + "");
+			return "origin/" + revision;
+		}
+	}
+	
+	/**
+	 * Restrict the checkout of a repository or worktree to the configured sparse paths,
+	 * the files in the root directory are always checked out
+	 * @param directory
+	 * @throws Exception
+	 */
+	private static void setSparsePaths(File directory) throws Exception {
+		execute(directory, "sparse-checkout", "init", "--cone");
+		
+		List<String> arguments = new ArrayList<String>(Arrays.asList("sparse-checkout", "set"));
+		arguments.addAll(Configuration.getSparsePaths());
+		execute(directory, arguments.toArray(new String[arguments.size()]));
+	}
+	
+	/**
+	 * Get the backend which is used to access repositories, depending on the configuration
+	 * @return Either the in process backend or the backend executing the git command
+	 */
+	public static GitBackend getBackend() {
+		if (Configuration.isInProcessGitEnabled()) {
+			return new JGitBackend();
+		} else {
+			return new CommandLineGitBackend();
+		}
+	}
+	
+	/**
+	 * Add a worktree to an already cloned repository, sharing its objects. The worktree is checked out
+	 * to the given commit, or to the given branch if no commit is given, without claiming the branch.
+	 * @param repositoryDirectory Directory of the cloned repository
+	 * @param branchName Branch to check out, may be null
+	 * @param commitID Commit to check out, may be null
+	 * @return The location of the worktree, within the temporary directory
+	 * @throws Exception 
+	 */
+	public static String addWorktree(String repositoryDirectory, String branchName, String commitID) throws Exception {
+		File worktreeDirectory = new File(Configuration.getTemporaryDirectory() + "/" + Calendar.getInstance().getTime().getTime() + "-worktree");
+		File repository = new File(repositoryDirectory);
+		
+		String revision = "HEAD";
+		if (commitID != null) {
+			revision = commitID;
+		} else if (branchName != null) {
+			revision = branchName;
+			try {
+				// A clone only has a local branch for the default branch, the others are remote branches
+				execute(repository, "rev-parse", "--verify", "--quiet", "refs/remotes/origin/" + branchName);
+				revision = "origin/" + branchName;
+			} catch (Exception e) {
+				// Not a remote branch, use it as given
+			}
+		}
+		
+		Main.printLine("[Info] Adding worktree for \"" + revision + "\"");
+		if (Configuration.getSparsePaths() == null) {
+			execute(repository, "worktree", "add", "--detach", worktreeDirectory.getAbsolutePath(), revision);
+		} else {
+			// The sparse checkout patterns belong to a worktree, so set them before checking out the files
+			execute(repository, "worktree", "add", "--detach", "--no-checkout", worktreeDirectory.getAbsolutePath(), revision);
+			setSparsePaths(worktreeDirectory);
+			execute(worktreeDirectory, "checkout", "-q", "-f", revision);
 		}
+		Main.printLine("[Info] Adding worktree succesfull!");
+		
+		return worktreeDirectory.getAbsolutePath();
 	}
 	
 	/**
@@ -49,26 +182,174 @@ public class Git {
 	public static boolean checkout(String repositoryDirectory, String commitOrBranch) throws Exception {
 		
 		Main.printLine("[Info] Checking out: \"" +commitOrBranch+ "\"");
-		ProcessBuilder builder = new ProcessBuilder("git","--git-dir", repositoryDirectory + "/.git/", "--work-tree", repositoryDirectory , "checkout", "-f", commitOrBranch);
-
-		Process process = null;
+		getBackend().checkout(new File(repositoryDirectory), commitOrBranch);
+		Main.printLine("[Info] Checkout succesfull! ");
+		
+		return true;
+	}
+	
+	
+	/**
+	 * Get the paths of all files which differ between the commits checked out in the original and revised directory,
+	 * according to git. Both directories must be clean checkouts and the revised repository must contain the original commit.
+	 * Renamed and copied files are reported with both their old and new path.
+	 * @param originalDirectory Directory containing the original checkout
+	 * @param revisedDirectory Directory containing the revised checkout
+	 * @return Absolute paths of the changed files, resolved against the revised directory
+	 * @throws Exception If git could not determine the changed files
+	 */
+	public static Set<String> changedFiles(String originalDirectory, String revisedDirectory) throws Exception {
+		File original = new File(originalDirectory).getAbsoluteFile();
+		File revised = new File(revisedDirectory).getAbsoluteFile();
 		
-		process = builder.start();
-		process.waitFor();
+		// Uncommitted changes are not seen by git diff, so the directories must match their commits
+		if (!isClean(originalDirectory) || !isClean(revisedDirectory)) {
+			throw new Exception("Uncommitted changes in \"" + originalDirectory + "\" or \"" + revisedDirectory + "\"");
+		}
 		
-		int exitValue = process.exitValue();
+		String originalCommit = execute(original, "rev-parse", "HEAD").trim();
+		String revisedCommit = execute(revised, "rev-parse", "HEAD").trim();
 		
-		process.destroy();
+		Main.printLine("[Info] Listing changed files between \"" + originalCommit + "\" and \"" + revisedCommit + "\"");
+		String output = execute(revised, "diff", "--name-status", "-M", "-z", "--relative", originalCommit, revisedCommit);
 		
-		if (exitValue == 0) {
-			Main.printLine("[Info] Checkout succesfull! ");
-			return true;
-		} else {
-			throw new Exception(exitValue + "");
+		// Output consists of a status followed by one path, or two paths for renames and copies, all separated by NUL characters
+		Set<String> changedFiles = new HashSet<String>();
+		String[] fields = output.split("\0");
+		int i = 0;
+		while (i < fields.length) {
+			if (fields[i].isEmpty()) {
+				i++;
+				continue;
+			}
+			
+			char status = fields[i].charAt(0);
+			int pathCount = (status == 'R' || status == 'C') ? 2 : 1;
+			for(int j = 1; j <= pathCount && i + j < fields.length; j++) {
+				changedFiles.add(new File(revised, fields[i + j]).getAbsolutePath());
+			}
+			i += pathCount + 1;
 		}
+		
+		return changedFiles;
 	}
 	
+	/**
+	 * Check if the java files in the directory match the checked out commit
+	 * @param directory Directory containing a checkout
+	 * @return True if there are no uncommitted changes or untracked java files
+	 * @throws Exception If the status could not be determined
+	 */
+	public static boolean isClean(String directory) throws Exception {
+		return execute(new File(directory).getAbsoluteFile(), "status", "--porcelain", "--", "*.java").isEmpty();
+	}
 	
-}
+	/**
+	 * Get the id of the tree checked out in the directory
+	 * @param directory Directory within a git checkout
+	 * @return The tree id of HEAD, or null if any file differs from HEAD or is untracked
+	 * @throws Exception If the directory is not within a git checkout
+	 */
+	public static String getCleanTreeID(String directory) throws Exception {
+		File workingDirectory = new File(directory).getAbsoluteFile();
+		if (!execute(workingDirectory, "status", "--porcelain").isEmpty()) {
+			return null;
+		}
 
+		return execute(workingDirectory, "rev-parse", "HEAD^{tree}").trim();
+	}
+
+	/**
+	 * Get the git directory holding the objects of the checkout in the directory. For a worktree,
+	 * this is the git directory of the repository the worktree was added to.
+	 * @param directory Root directory of a git checkout
+	 * @return Absolute path of the git directory
+	 * @throws Exception If the directory is not the root of a git checkout
+	 */
+	public static String getGitDirectory(String directory) throws Exception {
+		File workingDirectory = new File(directory).getAbsoluteFile();
+		String[] output = execute(workingDirectory, "rev-parse", "--show-toplevel", "--git-common-dir").trim().split("\n");
+		
+		if (output.length != 2 || !new File(output[0]).getCanonicalFile().equals(workingDirectory.getCanonicalFile())) {
+			throw new Exception("\"" + directory + "\" is not the root of a git checkout");
+		}
+		
+		// The git directory is relative to the working directory, unless it is outside of it
+		File gitDirectory = new File(output[1]);
+		if (!gitDirectory.isAbsolute()) {
+			gitDirectory = new File(workingDirectory, output[1]);
+		}
+		
+		return gitDirectory.getCanonicalPath();
+	}
+	
+	/**
+	 * Get the id of the commit checked out in the directory
+	 * @param directory Directory within a git checkout
+	 * @return The commit id of HEAD
+	 * @throws Exception If the directory is not within a git checkout
+	 */
+	public static String getHeadCommitID(String directory) throws Exception {
+		return execute(new File(directory).getAbsoluteFile(), "rev-parse", "--verify", "HEAD^{commit}").trim();
+	}
 
+	/**
+	 * Execute a git command within the given directory
+	 * @param directory Working directory of the command
+	 * @param arguments Arguments passed to git
+	 * @return The standard output of the command
+	 * @throws Exception If the command failed, containing its exit value
+	 */
+	static String execute(File directory, String... arguments) throws Exception {
+		return new String(executeForBytes(directory, arguments), "UTF-8");
+	}
+	
+	/**
+	 * Execute a git command within the given directory
+	 * @param directory Working directory of the command
+	 * @param arguments Arguments passed to git
+	 * @return The unaltered standard output of the command
+	 * @throws Exception If the command failed, containing its exit value
+	 */
+	static byte[] executeForBytes(File directory, String... arguments) throws Exception {
+		String[] command = new String[arguments.length + 1];
+		command[0] = "git";
+		System.arraycopy(arguments, 0, command, 1, arguments.length);
+		
+		ProcessBuilder builder = new ProcessBuilder(command);
+		builder.directory(directory);
+		builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+		
+		ProcessControl run = ProcessControl.getCurrentRun();
+		Process process = run.start(builder);
+		
+		// Read the output while waiting, a full pipe would block the process
+		final InputStream input = process.getInputStream();
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		Thread outputThread = new Thread(Thread.currentThread().getName() + "GitOutput") {
+			public void run() {
+				try {
+					byte[] buffer = new byte[8192];
+					int read;
+					while ((read = input.read(buffer)) != -1) {
+						output.write(buffer, 0, read);
+					}
+					input.close();
+				} catch (IOException e) {
+					// The process was killed
+				}
+			}
+		};
+		outputThread.setDaemon(true);
+		outputThread.start();
+		
+		int exitValue = run.waitFor(process, Configuration.getGitTimeout(), "git " + arguments[0]);
+		outputThread.join();
+		
+		if (exitValue != 0) {
+			throw new Exception(exitValue + "");
+		}
+		
+		return output.toByteArray();
+	}
+}
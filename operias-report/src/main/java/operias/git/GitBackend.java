@@ -0,0 +1,59 @@
+package operias.git;
+
+import java.io.File;
+import java.util.Map;
+
+/**
+ * Access to git repositories, either by executing the git command or in process
+ */
+public interface GitBackend {
+
+	/**
+	 * Clone the repository url to the destination directory
+	 * @param URL Repository url
+	 * @param destination Directory of the clone
+	 * @throws Exception
+	 */
+	void clone(String URL, File destination) throws Exception;
+	
+	/**
+	 * Fetch the latest changes of the origin of the repository
+	 * @param repository Directory of the repository
+	 * @throws Exception
+	 */
+	void fetch(File repository) throws Exception;
+	
+	/**
+	 * Check out the working tree of the repository to a commit or branch, discarding local changes
+	 * @param repository Directory of the repository
+	 * @param commitOrBranch Commit id, branch name or other revision
+	 * @throws Exception
+	 */
+	void checkout(File repository, String commitOrBranch) throws Exception;
+	
+	/**
+	 * List all files within the tree of a revision
+	 * @param repository Directory of the repository
+	 * @param revision Commit id, branch name or other revision
+	 * @return The blob ids of the files, by their path relative to the root of the repository
+	 * @throws Exception
+	 */
+	Map<String, String> listTree(File repository, String revision) throws Exception;
+	
+	/**
+	 * Read the content of a blob
+	 * @param repository Directory of the repository
+	 * @param blobID Id of the blob
+	 * @return The content of the blob
+	 * @throws Exception
+	 */
+	byte[] readBlob(File repository, String blobID) throws Exception;
+	
+	/**
+	 * Open a reader for the blobs of a repository, which should be used when many blobs are read
+	 * @param repository Directory of the repository
+	 * @return The reader, which must be closed after use
+	 * @throws Exception
+	 */
+	BlobReader openBlobReader(File repository) throws Exception;
+}
@@ -0,0 +1,259 @@
+package operias.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+import operias.Configuration;
+import operias.Main;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Persistent cache of bare mirrors, one for every repository url. A mirror is fetched incrementally
+ * before it is used, and checkouts are cloned from the mirror instead of from the remote repository.
+ * As a local clone hard links the objects of the mirror, a checkout never depends on the cache and
+ * mirrors can be evicted at any time they are not in use.
+ *
+ * Every mirror is guarded by a lock file, so multiple threads and processes can share the cache directory.
+ */
+public class GitCache {
+
+	/**
+	 * Static class, so private constructor
+	 */
+	private GitCache() {
+
+	}
+
+	/**
+	 * Locks of the mirrors used within this process, a file lock can only be held once per process
+	 */
+	private static final ConcurrentHashMap<String, ReentrantLock> locks = new ConcurrentHashMap<String, ReentrantLock>();
+
+	/**
+	 * Clone the repository url to the destination, through the mirror of the repository in the cache directory.
+	 * The origin of the clone is set to the repository url.
+	 * @param URL Repository url
+	 * @param destination Directory of the clone
+	 * @throws Exception
+	 */
+	public static void clone(String URL, File destination) throws Exception {
+		File cacheDirectory = new File(Configuration.getGitCacheDirectory());
+		cacheDirectory.mkdirs();
+
+		String key = getKey(URL);
+		File mirror = new File(cacheDirectory, key + ".git");
+
+		ReentrantLock lock = getLock(key);
+		lock.lock();
+		try (FileChannel channel = FileChannel.open(getLockFile(cacheDirectory, key).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			FileLock fileLock = channel.lock();
+			try {
+				updateMirror(URL, mirror);
+
+				Main.printLine("[Info] Cloning from mirror \"" + mirror.getAbsolutePath() + "\"");
+				Git.execute(cacheDirectory, "clone", "--quiet", mirror.getAbsolutePath(), destination.getAbsolutePath());
+				Git.execute(destination, "remote", "set-url", "origin", URL);
+
+				// The modification time of the lock file marks when the mirror was used last
+				getLockFile(cacheDirectory, key).setLastModified(System.currentTimeMillis());
+			} finally {
+				fileLock.release();
+			}
+		} finally {
+			lock.unlock();
+		}
+
+		evict(cacheDirectory, key);
+	}
+
+	/**
+	 * Create the mirror of the repository, or fetch the latest changes if it already exists.
+	 * A mirror which can not be fetched is created again.
+	 * @param URL Repository url
+	 * @param mirror Directory of the mirror
+	 * @throws Exception
+	 */
+	private static void updateMirror(String URL, File mirror) throws Exception {
+		if (mirror.isDirectory()) {
+			try {
+				Main.printLine("[Info] Fetching \"" + URL + "\" into mirror");
+				Git.execute(mirror, "fetch", "--quiet", "--prune", "origin");
+				return;
+			} catch (TimeoutException | CancellationException e) {
+				throw e;
+			} catch (Exception e) {
+				Main.printLine("[Warning] Fetching into mirror failed, creating the mirror again");
+				FileUtils.deleteDirectory(mirror);
+			}
+		}
+
+		// Clone next to the mirror first, so an interrupted clone is never mistaken for a mirror
+		File partialMirror = new File(mirror.getAbsolutePath() + ".partial");
+		if (partialMirror.exists()) {
+			FileUtils.deleteDirectory(partialMirror);
+		}
+
+		Main.printLine("[Info] Mirroring \"" + URL + "\"");
+		Git.execute(mirror.getParentFile(), "clone", "--quiet", "--mirror", URL, partialMirror.getAbsolutePath());
+
+		if (!partialMirror.renameTo(mirror)) {
+			throw new IOException("Could not move the mirror to \"" + mirror.getAbsolutePath() + "\"");
+		}
+	}
+
+	/**
+	 * Remove the least recently used mirrors until the cache fits within its maximum size.
+	 * Mirrors that are in use and the mirror which was just used are never removed. Mirrors which are
+	 * changed by another process while the cache is measured are skipped, evicting never fails a clone.
+	 * @param cacheDirectory
+	 * @param currentKey Key of the mirror which was just used
+	 */
+	private static synchronized void evict(File cacheDirectory, String currentKey) {
+		File[] mirrors = cacheDirectory.listFiles();
+		if (mirrors == null) {
+			return;
+		}
+
+		long totalSize = 0;
+		List<File> candidates = new ArrayList<File>();
+		for(File mirror : mirrors) {
+			if (mirror.isDirectory() && mirror.getName().endsWith(".git")) {
+				long size = getSize(mirror);
+				if (size < 0) {
+					continue;
+				}
+
+				totalSize += size;
+				if (!mirror.getName().equals(currentKey + ".git")) {
+					candidates.add(mirror);
+				}
+			}
+		}
+
+		if (totalSize <= Configuration.getGitCacheSize()) {
+			return;
+		}
+
+		// Least recently used first
+		final Map<File, Long> lastUsed = new HashMap<File, Long>();
+		for(File mirror : candidates) {
+			lastUsed.put(mirror, getLockFile(cacheDirectory, getMirrorKey(mirror)).lastModified());
+		}
+		Collections.sort(candidates, new Comparator<File>() {
+			@Override
+			public int compare(File first, File second) {
+				return Long.compare(lastUsed.get(first), lastUsed.get(second));
+			}
+		});
+
+		for(File mirror : candidates) {
+			if (totalSize <= Configuration.getGitCacheSize()) {
+				break;
+			}
+
+			String key = getMirrorKey(mirror);
+			ReentrantLock lock = getLock(key);
+			if (!lock.tryLock()) {
+				continue;
+			}
+
+			try (FileChannel channel = FileChannel.open(getLockFile(cacheDirectory, key).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+					FileLock fileLock = channel.tryLock()) {
+
+				long size = getSize(mirror);
+				if (fileLock != null && size >= 0) {
+					Main.printLine("[Info] Removing mirror \"" + mirror.getAbsolutePath() + "\" from the cache");
+					FileUtils.deleteDirectory(mirror);
+					totalSize -= size;
+				}
+			} catch (IOException e) {
+				Main.printLine("[Warning] Could not remove mirror \"" + mirror.getAbsolutePath() + "\" from the cache: " + e.getMessage());
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Get the size of a mirror, which may be fetched or removed by another process at the same time
+	 * @param mirror
+	 * @return The size in bytes, or -1 if the mirror could not be measured
+	 */
+	private static long getSize(File mirror) {
+		try {
+			return FileUtils.sizeOfDirectory(mirror);
+		} catch (IllegalArgumentException | UncheckedIOException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Get the lock used within this process for the given mirror
+	 * @param key
+	 * @return
+	 */
+	private static ReentrantLock getLock(String key) {
+		ReentrantLock lock = locks.get(key);
+		if (lock == null) {
+			ReentrantLock newLock = new ReentrantLock();
+			lock = locks.putIfAbsent(key, newLock);
+			if (lock == null) {
+				lock = newLock;
+			}
+		}
+
+		return lock;
+	}
+
+	/**
+	 * Get the lock file of the mirror
+	 * @param cacheDirectory
+	 * @param key
+	 * @return
+	 */
+	private static File getLockFile(File cacheDirectory, String key) {
+		return new File(cacheDirectory, key + ".lock");
+	}
+
+	/**
+	 * Get the key of a mirror directory
+	 * @param mirror
+	 * @return
+	 */
+	private static String getMirrorKey(File mirror) {
+		return mirror.getName().substring(0, mirror.getName().length() - ".git".length());
+	}
+
+	/**
+	 * Get the key of the repository url, used as the name of the mirror
+	 * @param URL
+	 * @return Hexadecimal SHA-1 hash of the url
+	 * @throws Exception
+	 */
+	private static String getKey(String URL) throws Exception {
+		byte[] hash = MessageDigest.getInstance("SHA-1").digest(URL.getBytes("UTF-8"));
+
+		StringBuilder key = new StringBuilder();
+		for(byte b : hash) {
+			key.append(String.format("%02x", b));
+		}
+
+		return key.toString();
+	}
+}
@@ -0,0 +1,225 @@
+package operias.git;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeoutException;
+
+import operias.Configuration;
+import operias.ProcessControl;
+
+import org.eclipse.jgit.api.CreateBranchCommand.SetupUpstreamMode;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.EmptyProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+
+/**
+ * Git backend which accesses the repositories in process, through JGit.
+ * 
+ * JGit does not start a process which can be killed, so cloning, fetching and checking out are instead stopped
+ * through their progress monitor once the run is cancelled or the git timeout has passed. The monitor is only
+ * asked between units of work, the network operations are therefore limited by the git timeout as well.
+ */
+public class JGitBackend implements GitBackend {
+
+	@Override
+	public void clone(String URL, File destination) throws Exception {
+		ControlledProgressMonitor monitor = new ControlledProgressMonitor("git clone");
+		monitor.check();
+		
+		try {
+			org.eclipse.jgit.api.Git.cloneRepository().setURI(URL).setDirectory(destination)
+				.setTimeout((int) Configuration.getGitTimeout()).setProgressMonitor(monitor).call().close();
+		} catch (Exception e) {
+			monitor.check();
+			throw e;
+		}
+		
+		monitor.check();
+	}
+
+	@Override
+	public void fetch(File repository) throws Exception {
+		ControlledProgressMonitor monitor = new ControlledProgressMonitor("git fetch");
+		monitor.check();
+		
+		org.eclipse.jgit.api.Git git = org.eclipse.jgit.api.Git.open(repository);
+		try {
+			git.fetch().setRemote(Constants.DEFAULT_REMOTE_NAME).setTimeout((int) Configuration.getGitTimeout()).setProgressMonitor(monitor).call();
+		} catch (Exception e) {
+			monitor.check();
+			throw e;
+		} finally {
+			git.close();
+		}
+		
+		monitor.check();
+	}
+
+	@Override
+	public void checkout(File repository, String commitOrBranch) throws Exception {
+		ControlledProgressMonitor monitor = new ControlledProgressMonitor("git checkout");
+		monitor.check();
+		
+		org.eclipse.jgit.api.Git git = org.eclipse.jgit.api.Git.open(repository);
+		try {
+			Repository gitRepository = git.getRepository();
+			
+			if (gitRepository.findRef(Constants.R_HEADS + commitOrBranch) != null) {
+				git.checkout().setName(commitOrBranch).setForced(true).setProgressMonitor(monitor).call();
+			} else if (gitRepository.findRef(Constants.R_REMOTES + Constants.DEFAULT_REMOTE_NAME + "/" + commitOrBranch) != null) {
+				// Same as the git command, create a local branch which tracks the remote branch
+				git.checkout().setName(commitOrBranch).setCreateBranch(true).setForced(true)
+					.setStartPoint(Constants.DEFAULT_REMOTE_NAME + "/" + commitOrBranch)
+					.setUpstreamMode(SetupUpstreamMode.TRACK).setProgressMonitor(monitor).call();
+			} else {
+				ObjectId commit = gitRepository.resolve(commitOrBranch + "^{commit}");
+				if (commit == null) {
+					throw new Exception("Unknown revision \"" + commitOrBranch + "\"");
+				}
+				git.checkout().setName(commit.name()).setForced(true).setProgressMonitor(monitor).call();
+			}
+		} catch (Exception e) {
+			monitor.check();
+			throw e;
+		} finally {
+			git.close();
+		}
+		
+		monitor.check();
+	}
+
+	@Override
+	public Map<String, String> listTree(File repository, String revision) throws Exception {
+		Map<String, String> files = new HashMap<String, String>();
+		
+		Repository gitRepository = org.eclipse.jgit.api.Git.open(repository).getRepository();
+		try {
+			ObjectId commitID = gitRepository.resolve(revision + "^{commit}");
+			if (commitID == null) {
+				throw new Exception("Unknown revision \"" + revision + "\"");
+			}
+			
+			RevWalk revWalk = new RevWalk(gitRepository);
+			TreeWalk treeWalk = new TreeWalk(gitRepository);
+			try {
+				RevCommit commit = revWalk.parseCommit(commitID);
+				treeWalk.addTree(commit.getTree());
+				treeWalk.setRecursive(true);
+				
+				while (treeWalk.next()) {
+					if (treeWalk.getFileMode(0).getObjectType() == Constants.OBJ_BLOB) {
+						files.put(treeWalk.getPathString(), treeWalk.getObjectId(0).name());
+					}
+				}
+			} finally {
+				treeWalk.close();
+				revWalk.close();
+			}
+		} finally {
+			gitRepository.close();
+		}
+		
+		return files;
+	}
+
+	@Override
+	public byte[] readBlob(File repository, String blobID) throws Exception {
+		Repository gitRepository = org.eclipse.jgit.api.Git.open(repository).getRepository();
+		try {
+			return gitRepository.open(ObjectId.fromString(blobID), Constants.OBJ_BLOB).getBytes(Integer.MAX_VALUE);
+		} finally {
+			gitRepository.close();
+		}
+	}
+	
+	@Override
+	public BlobReader openBlobReader(File repository) throws Exception {
+		final Repository gitRepository = org.eclipse.jgit.api.Git.open(repository).getRepository();
+		
+		return new BlobReader() {
+			@Override
+			public byte[] readBlob(String blobID) throws Exception {
+				// Every read uses its own object reader, the repository itself can be shared between threads
+				return gitRepository.open(ObjectId.fromString(blobID), Constants.OBJ_BLOB).getBytes(Integer.MAX_VALUE);
+			}
+			
+			@Override
+			public void close() {
+				gitRepository.close();
+			}
+		};
+	}
+	
+	/**
+	 * Progress monitor which stops the JGit operation once the run of the thread creating it is cancelled,
+	 * or once the git timeout has passed since it was created
+	 */
+	private static class ControlledProgressMonitor extends EmptyProgressMonitor {
+		
+		/**
+		 * Run to which the operation belongs
+		 */
+		private final ProcessControl run;
+		
+		/**
+		 * Description of the operation, used in the timeout message
+		 */
+		private final String description;
+		
+		/**
+		 * Maximum time the operation may take in seconds, 0 for no limit
+		 */
+		private final long timeout;
+		
+		/**
+		 * Time in milliseconds at which the operation is stopped
+		 */
+		private final long deadline;
+		
+		/**
+		 * True once the operation was stopped because it took too long
+		 */
+		private volatile boolean timedOut = false;
+		
+		/**
+		 * Create a monitor for an operation started now
+		 * @param description
+		 */
+		ControlledProgressMonitor(String description) {
+			this.run = ProcessControl.getCurrentRun();
+			this.description = description;
+			this.timeout = Configuration.getGitTimeout();
+			this.deadline = System.currentTimeMillis() + timeout * 1000;
+		}
+		
+		@Override
+		public boolean isCancelled() {
+			if (timeout > 0 && System.currentTimeMillis() > deadline) {
+				timedOut = true;
+			}
+			
+			return timedOut || run.isCancelled();
+		}
+		
+		/**
+		 * Check whether the operation was stopped
+		 * @throws TimeoutException If the operation did not finish in time
+		 * @throws CancellationException If the run was cancelled
+		 */
+		void check() throws TimeoutException {
+			if (run.isCancelled()) {
+				throw new CancellationException("The execution of operias was cancelled");
+			}
+			
+			if (timedOut) {
+				throw new TimeoutException(description + " did not finish within " + timeout + " seconds");
+			}
+		}
+	}
+}
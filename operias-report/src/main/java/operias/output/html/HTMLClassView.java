@@ -12,7 +12,6 @@ import org.apache.commons.io.IOUtils;
 
 import operias.Configuration;
 import operias.coverage.CoberturaClass;
-import operias.coverage.CoberturaLine;
 import operias.diff.SourceDiffState;
 import operias.report.OperiasFile;
 import operias.report.change.ChangeSourceChange;
@@ -95,10 +94,10 @@ public class HTMLClassView extends HTMLCodeView {
 		outputStreamHTMLFile.println("<table id='"+tableName+"' class='code'>");
 		while ((line = sourceFileReader.readLine()) != null) {
 			String tdClass = "";
-			CoberturaLine coverageLine = coverageInformation.tryGetLine(lineNumber);
-			if (coverageLine != null && coverageLine.isCovered()) {
+			Boolean lineCovered = coverageInformation.tryGetLineCoverage(lineNumber);
+			if (lineCovered != null && lineCovered) {
 				tdClass = "coveredLight";
-			} else if (coverageLine != null && !coverageLine.isCovered()) {
+			} else if (lineCovered != null && !lineCovered) {
 				tdClass = "notCoveredLight";
 			}
 			
@@ -229,16 +228,16 @@ public class HTMLClassView extends HTMLCodeView {
 				// No change on this line, show the line with coverage information if possible
 				
 				String tdClass = "";
-				CoberturaLine coverageLine = null;
+				Boolean lineCovered = null;
 				if (file.getSourceDiff().getSourceState() == SourceDiffState.DELETED){
-					coverageLine = coverageInformation.tryGetLine(originalLineNumber);
+					lineCovered = coverageInformation.tryGetLineCoverage(originalLineNumber);
 				} else {
-					coverageLine = coverageInformation.tryGetLine(revisedLineNumber);
+					lineCovered = coverageInformation.tryGetLineCoverage(revisedLineNumber);
 				}
 				
-				if (coverageLine != null && coverageLine.isCovered()) {
+				if (lineCovered != null && lineCovered) {
 					tdClass = "coveredLight";
-				} else if (coverageLine != null && !coverageLine.isCovered()) {
+				} else if (lineCovered != null && !lineCovered) {
 					tdClass = "notCoveredLight";
 				}
 				
@@ -5,12 +5,18 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 
 import operias.Configuration;
+import operias.coverage.CpuBudget;
 import operias.report.OperiasFile;
 import operias.report.OperiasReport;
 
@@ -37,25 +43,56 @@ public class HTMLReport {
 	}
 	
 	/**
-	 * Generate the html web site
+	 * Generate the html web site, the pages are written in parallel
 	 * @throws IOException 
 	 */
 	public void generateReport() throws IOException {
 		generateInitialStructure();
 		
-		ArrayList<String> packageNames = new ArrayList<String>();
+		final ArrayList<String> packageNames = new ArrayList<String>();
+		List<CompletableFuture<Void>> pageTasks = new ArrayList<CompletableFuture<Void>>();
 		
-		// Create all pages for the viewing of the files
-		for(OperiasFile oFile : this.report.getChangedClasses()) {
-			new HTMLClassView(oFile, report.getChangedClasses());
-			if (packageNames.indexOf(oFile.getPackageName()) < 0) {
-				packageNames.add(oFile.getPackageName());
+		// The pages are written on a pool of its own, writing them blocks on the file system
+		ExecutorService pool = CpuBudget.newPool("WriteHTML");
+		try {
+			// Create all pages for the viewing of the files
+			for(final OperiasFile oFile : this.report.getChangedClasses()) {
+				pageTasks.add(CompletableFuture.runAsync(new Runnable() {
+					public void run() {
+						try {
+							new HTMLClassView(oFile, report.getChangedClasses());
+						} catch (IOException e) {
+							throw new UncheckedIOException(e);
+						}
+					}
+				}, pool));
+				if (packageNames.indexOf(oFile.getPackageName()) < 0) {
+					packageNames.add(oFile.getPackageName());
+				}
 			}
+			
+			// Construct index.html
+			pageTasks.add(CompletableFuture.runAsync(new Runnable() {
+				public void run() {
+					try {
+						new HTMLOverview(report, packageNames).generateHTML();
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+			}, pool));
+			
+			CompletableFuture.allOf(pageTasks.toArray(new CompletableFuture<?>[pageTasks.size()])).join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof UncheckedIOException) {
+				throw ((UncheckedIOException) e.getCause()).getCause();
+			} else if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		} finally {
+			pool.shutdown();
 		}
-		
-		// Construct index.html
-		new HTMLOverview(report, packageNames).generateHTML();
-		
 	}
 	
 	/**
@@ -7,9 +7,9 @@ import difflib.DeleteDelta;
 import difflib.Delta;
 import difflib.InsertDelta;
 import operias.Main;
+import operias.OperiasException;
 import operias.OperiasStatus;
 import operias.coverage.CoberturaClass;
-import operias.coverage.CoberturaLine;
 import operias.diff.DiffFile;
 import operias.diff.SourceDiffState;
 import operias.report.change.ChangeSourceChange;
@@ -83,13 +83,7 @@ public class OperiasFile {
 				
 				for(int i = 0; i < sourceDiff.getChanges().get(0).getRevised().getLines().size(); i++) {
 					// Add offset
-					CoberturaLine line = revisedClass.tryGetLine(i + 1);
-					
-					if (line != null) {
-						insertChange.addRevisedCoverageLine(line.isCovered());
-					} else {
-						insertChange.addRevisedCoverageLine(null);
-					}
+					insertChange.addRevisedCoverageLine(revisedClass.tryGetLineCoverage(i + 1));
 				}
 				changes.add(insertChange);
 			} else {
@@ -98,13 +92,7 @@ public class OperiasFile {
 				
 				for(int i = 0; i < sourceDiff.getChanges().get(0).getRevised().getLines().size(); i++) {
 					// Add offset
-					CoberturaLine line = originalClass.tryGetLine(i + 1);
-					
-					if (line != null) {
-						deleteChange.addOriginalCoverageLine(line.isCovered());
-					} else {
-						deleteChange.addOriginalCoverageLine(null);
-					}
+					deleteChange.addOriginalCoverageLine(originalClass.tryGetLineCoverage(i + 1));
 				}
 				changes.add(deleteChange);
 				
@@ -131,92 +119,98 @@ public class OperiasFile {
 		
 		if (!originalClass.getName().equals(revisedClass.getName())) {
 			// Invalid class comparison, may not happen!
-			System.exit(OperiasStatus.ERROR_OPERIAS_DIFF_INVALID_CLASS_COMPARISON.ordinal());
+			throw new OperiasException(OperiasStatus.ERROR_OPERIAS_DIFF_INVALID_CLASS_COMPARISON, "Can not compare class " + originalClass.getName() + " to " + revisedClass.getName());
 		}
 		
 		CompareLines(1, 1);
 	}
 	
 	/**
-	 * Compare lines with each other
+	 * Compare lines with each other, starting at the given lines. Both classes are walked in a single pass,
+	 * lines without a source change are compared on their coverage, source changes are skipped as a whole.
 	 * @param originalClassLine Line in the original class coverage information
 	 * @param revisedClassLine Line in the new class coverage information
 	 */
 	public void CompareLines(int originalClassLine, int revisedClassLine) {
-		if (originalClassLine > originalClass.getMaxLineNumber() && 
-				revisedClassLine > revisedClass.getMaxLineNumber()) {
-			return;
-		}
-		
-		// Source diff starts at lines 0
-		Delta change = sourceDiff.tryGetChange(originalClassLine - 1, revisedClassLine - 1);
+		DiffFile.ChangeCursor changeCursor = sourceDiff.getChangeCursor();
 		
-		if (change == null) {
-			// No source diff, check the coverage difference between the lines
-			CoberturaLine originalLine = originalClass.tryGetLine(originalClassLine);
-			CoberturaLine revisedLine = revisedClass.tryGetLine(revisedClassLine);
+		while (originalClassLine <= originalClass.getMaxLineNumber() || 
+				revisedClassLine <= revisedClass.getMaxLineNumber()) {
 			
-			if (originalLine == null ^ revisedLine == null) {
-				// This can be the case, if a constructor has been removed!
-				// The class line will be marked as either covered or uncovered, but no information was known about the other class
+			// Source diff starts at lines 0
+			Delta change = changeCursor.tryGetChange(originalClassLine - 1, revisedClassLine - 1);
+			
+			if (change == null) {
+				// No source diff, check the coverage difference between the lines
+				Boolean originalCoverage = originalClass.tryGetLineCoverage(originalClassLine);
+				Boolean revisedCoverage = revisedClass.tryGetLineCoverage(revisedClassLine);
 				
-				if (originalLine == null && revisedLine.isCovered() || revisedLine == null && originalLine.isCovered()) {
-					changes.add(new CoverageIncreaseChange(originalClassLine, revisedClassLine));
-				} else {
-					changes.add(new CoverageDecreaseChange(originalClassLine, revisedClassLine));
-				}
-			} else if (originalLine != null) {
-				// Lines found, compare!
-				if (originalLine.isCondition() ^ revisedLine.isCondition()) {
-					// Again something went wrong i suppose... no change in the line, so is either should both be conditions or not
-					System.exit(OperiasStatus.ERROR_OPERIAS_INVALID_LINE_COMPARISON.ordinal());				
+				if (originalCoverage == null ^ revisedCoverage == null) {
+					// This can be the case, if a constructor has been removed!
+					// The class line will be marked as either covered or uncovered, but no information was known about the other class
+					
+					if (originalCoverage == null && revisedCoverage || revisedCoverage == null && originalCoverage) {
+						changes.add(new CoverageIncreaseChange(originalClassLine, revisedClassLine));
+					} else {
+						changes.add(new CoverageDecreaseChange(originalClassLine, revisedClassLine));
+					}
+				} else if (originalCoverage != null) {
+					// Lines found, compare!
+					if (originalClass.isConditionLine(originalClassLine) ^ revisedClass.isConditionLine(revisedClassLine)) {
+						// Again something went wrong i suppose... no change in the line, so is either should both be conditions or not
+						throw new OperiasException(OperiasStatus.ERROR_OPERIAS_INVALID_LINE_COMPARISON, "Line " + revisedClassLine + " of " + className + " is a condition in only one of the reports");
+					}
+					
+					if (!originalCoverage && revisedCoverage) {
+						// Increase delta
+						changes.add(new CoverageIncreaseChange(originalClassLine, revisedClassLine));
+					} else if (originalCoverage && !revisedCoverage) {
+						// Decrease delta
+						changes.add(new CoverageDecreaseChange(originalClassLine, revisedClassLine));
+					}
 				}
 				
-				if (!originalLine.isCovered() && revisedLine.isCovered()) {
-					// Increase delta
-					changes.add(new CoverageIncreaseChange(originalClassLine, revisedClassLine));
-				} else if (originalLine.isCovered() && !revisedLine.isCovered()) {
-					// Decrease delta
-					changes.add(new CoverageDecreaseChange(originalClassLine, revisedClassLine));
-				}
-			}
-			CompareLines(originalClassLine + 1, revisedClassLine + 1);	
-		} else {
-			SourceChange sourceChange = null;
-			if (change instanceof InsertDelta) {
-				sourceChange = new InsertSourceChange(originalClassLine, revisedClassLine, (InsertDelta) change);
-			} else if (change instanceof ChangeDelta) {
-				sourceChange = new ChangeSourceChange(originalClassLine, revisedClassLine, (ChangeDelta) change);
+				originalClassLine++;
+				revisedClassLine++;
 			} else {
-				sourceChange = new DeleteSourceChange(originalClassLine, revisedClassLine, (DeleteDelta) change);
+				changes.add(constructSourceChange(change, originalClassLine, revisedClassLine));
+				
+				originalClassLine += change.getOriginal().getLines().size();
+				revisedClassLine += change.getRevised().getLines().size();
 			}
-			
-			if (!(change instanceof DeleteDelta)) {
-				for(int i = revisedClassLine; i < revisedClassLine + change.getRevised().getLines().size(); i++) {
-					CoberturaLine line = revisedClass.tryGetLine(i);
-					if (line == null) {
-						sourceChange.addRevisedCoverageLine(null);
-					} else {
-						sourceChange.addRevisedCoverageLine(line.isCovered());
-					}
-				}
+		}
+	}
+	
+	/**
+	 * Construct the source change for a delta, including the coverage of the changed lines
+	 * @param change Source diff delta
+	 * @param originalClassLine First line of the change in the original class
+	 * @param revisedClassLine First line of the change in the revised class
+	 * @return The source change
+	 */
+	private SourceChange constructSourceChange(Delta change, int originalClassLine, int revisedClassLine) {
+		SourceChange sourceChange = null;
+		if (change instanceof InsertDelta) {
+			sourceChange = new InsertSourceChange(originalClassLine, revisedClassLine, (InsertDelta) change);
+		} else if (change instanceof ChangeDelta) {
+			sourceChange = new ChangeSourceChange(originalClassLine, revisedClassLine, (ChangeDelta) change);
+		} else {
+			sourceChange = new DeleteSourceChange(originalClassLine, revisedClassLine, (DeleteDelta) change);
+		}
+		
+		if (!(change instanceof DeleteDelta)) {
+			for(int i = revisedClassLine; i < revisedClassLine + change.getRevised().getLines().size(); i++) {
+				sourceChange.addRevisedCoverageLine(revisedClass.tryGetLineCoverage(i));
 			}
-			
-			if (!(change instanceof InsertDelta)) {
-				for(int i = originalClassLine; i < originalClassLine + change.getOriginal().getLines().size(); i++) {
-					CoberturaLine line = originalClass.tryGetLine(i);
-					if (line == null) {
-						sourceChange.addOriginalCoverageLine(null);
-					} else {
-						sourceChange.addOriginalCoverageLine(line.isCovered());
-					}
-				}
+		}
+		
+		if (!(change instanceof InsertDelta)) {
+			for(int i = originalClassLine; i < originalClassLine + change.getOriginal().getLines().size(); i++) {
+				sourceChange.addOriginalCoverageLine(originalClass.tryGetLineCoverage(i));
 			}
-			changes.add(sourceChange);
-			
-			CompareLines(originalClassLine + change.getOriginal().getLines().size(), revisedClassLine + change.getRevised().getLines().size());
 		}
 		
+		return sourceChange;
 	}
 
 	/**
@@ -3,12 +3,16 @@ package operias.report;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
 
 import operias.Main;
 import operias.coverage.CoberturaClass;
 import operias.coverage.CoberturaPackage;
 import operias.coverage.CoverageReport;
-import operias.diff.DiffDirectory;
+import operias.coverage.CpuBudget;
 import operias.diff.DiffFile;
 import operias.diff.DiffReport;
 import operias.diff.SourceDiffState;
@@ -56,6 +60,12 @@ public class OperiasReport {
 	 * A list of possible file locations
 	 */
 	private List<String> sourceLocations;
+	
+	/**
+	 * The part of the comparison made before the revised report was available
+	 */
+	private OriginalComparison originalComparison;
+	
 	/**
 	 * Construct a new operias report
 	 * @param reportRepo
@@ -63,11 +73,21 @@ public class OperiasReport {
 	 * @param reportFileDiff
 	 */
 	public OperiasReport(CoverageReport originalReport, CoverageReport revisedReport, DiffReport sourceDiffReport) {
-		this.originalReport = originalReport;
+		this(new OriginalComparison(originalReport, sourceDiffReport), revisedReport);
+	}
+	
+	/**
+	 * Construct a new operias report by completing the comparison of the original report with the revised report
+	 * @param originalComparison Comparison of the original report to the source diff report
+	 * @param revisedReport
+	 */
+	public OperiasReport(OriginalComparison originalComparison, CoverageReport revisedReport) {
+		this.originalComparison = originalComparison;
+		this.originalReport = originalComparison.getOriginalReport();
 		this.revisedReport = revisedReport;
-		this.sourceDiffReport = sourceDiffReport;
+		this.sourceDiffReport = originalComparison.getSourceDiffReport();
 		this.changedClasses = new LinkedList<OperiasFile>();
-		this.changedTests = new LinkedList<DiffFile>();
+		this.changedTests = new LinkedList<DiffFile>(originalComparison.getChangedTests());
 		
 		// Combine all sources from both the original and revised reports
 		sourceLocations = new ArrayList<String>(originalReport.getSources());
@@ -77,106 +97,51 @@ public class OperiasReport {
 	}
 	
 	/**
-	 * Parse the reports
+	 * Parse the reports. Every package is compared in a separate task, the changed classes are collected in the order of the packages
 	 */
 	private void ParseReport() {
 		
-		// First we loop through the old packages and classes, and compare this to the new classes
-		for(CoberturaPackage oPackage : originalReport.getPackages()) {
-			CoberturaPackage rPackage = revisedReport.getPackage(oPackage.getName());
-			
-			// If package == null, the package was deleted, so the class was deleted, or the package name was new (will be marked in next phase) so we can ignore it
-			if (rPackage != null) {
-				for(CoberturaClass oClass : oPackage.getClasses()) {
-					
-					List<DiffFile> fileDiffs = sourceDiffReport.getFiles(sourceLocations, oClass.getFileName());
-					
-					for(DiffFile fileDiff : fileDiffs) {
-						// Class was deleted!
-						if (fileDiff.getSourceState() == SourceDiffState.DELETED) {
-							
-							OperiasFile newOFile = new OperiasFile(oClass, fileDiff);
-							if (newOFile.getChanges().size() > 0) {
-								changedClasses.add(newOFile);
-							}
-						} else  {
-							CoberturaClass rClass = rPackage.getClass(oClass.getName());
-							if (rClass != null) {
-								// We got the class, so we can compare the classes for any differences
-								OperiasFile newOFile = new OperiasFile(oClass, rClass, fileDiff);
-								if (newOFile.getChanges().size() > 0) {
-									changedClasses.add(newOFile);
-								}
-							} else {
-								// @TODO: think about how to fix this? Using the current structure, a file can only be marked
-								// delete if the diff report says its deleted.
-								Main.printLine("[Warning] Found a innerclass which was deleted: " + oClass.getName());
-							}
-						}
+		// The packages are compared on a pool of its own, the comparison reads the source files
+		ExecutorService pool = CpuBudget.newPool("CombineReports");
+		try {
+			// First we loop through the old packages and classes, and compare this to the new classes
+			List<CompletableFuture<List<OperiasFile>>> packageTasks = new ArrayList<CompletableFuture<List<OperiasFile>>>();
+			for(final CoberturaPackage oPackage : originalReport.getPackages()) {
+				packageTasks.add(CompletableFuture.supplyAsync(new Supplier<List<OperiasFile>>() {
+					public List<OperiasFile> get() {
+						return compareOriginalPackage(oPackage);
 					}
-				}
-			} else {
-				// All classes must be marked as deleted
-				for(CoberturaClass oClass : oPackage.getClasses()) {
-					DiffFile fileDiff = sourceDiffReport.getFile(sourceLocations, oClass.getFileName(), SourceDiffState.DELETED);
-					OperiasFile newOFile = new OperiasFile(oClass, fileDiff);
-					if (newOFile.getChanges().size() > 0) {
-						changedClasses.add(newOFile);
-					}
-				}
+				}, pool));
 			}
-		}
-		
-		// Next we loop through the newCobertura classes and check the newly added files
-		for(CoberturaPackage rPackage : revisedReport.getPackages()) {
-			CoberturaPackage oPackage = originalReport.getPackage(rPackage.getName());
 			
-			if (oPackage == null) {
-				// Package was new so, all classes should be "new"
-				for(CoberturaClass rClass : rPackage.getClasses()) {
-					DiffFile fileDiff = sourceDiffReport.getFile(sourceLocations, rClass.getFileName(), SourceDiffState.NEW);
-					OperiasFile newOFile = new OperiasFile(rClass, fileDiff);
-					if (newOFile.getChanges().size() > 0) {
-						changedClasses.add(newOFile);
-					}
-				}
-			} else {
-				// Package was found, check which classes are new
-				for(CoberturaClass rClass : rPackage.getClasses()) {
-					CoberturaClass oClass = oPackage.getClass(rClass.getName());
-					
-
-					DiffFile fileDiff = sourceDiffReport.getFile(sourceLocations, rClass.getFileName(), SourceDiffState.NEW);
-					
-					
-					if (fileDiff != null && oClass == null) {
-						// Class was new
-						OperiasFile newOFile = new OperiasFile(rClass, fileDiff);
-						if (newOFile.getChanges().size() > 0) {
-							changedClasses.add(newOFile);
-						}
-					} else if (oClass == null) {
-						Main.printLine("[Warning] Found a innerclass which was added: " + rClass.getName());
-					
+			// Next we loop through the newCobertura classes and check the newly added files
+			for(final CoberturaPackage rPackage : revisedReport.getPackages()) {
+				packageTasks.add(CompletableFuture.supplyAsync(new Supplier<List<OperiasFile>>() {
+					public List<OperiasFile> get() {
+						return compareRevisedPackage(rPackage);
 					}
-				}
+				}, pool));
+			}
+			
+			for(CompletableFuture<List<OperiasFile>> packageTask : packageTasks) {
+				changedClasses.addAll(packageTask.join());
 			}
+		} catch (CompletionException e) {
+			// Rethrow the failure of the comparison, such as an invalid line comparison
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		} finally {
+			pool.shutdown();
 		}
 		
 		Main.printLine("[Info] Done collecting and combining the changed classes");
 		
 		Main.printLine("[Info] Collect changed test files");
 		
-		// Finnaly, retrieve all changes test classes
-		for(String sourceLocation : sourceLocations) {
-			String baseLocation = sourceLocation.replaceAll("src/main/java", "src/test/java");
-			DiffDirectory testDirectory = sourceDiffReport.getDirectory(baseLocation);
-			if (testDirectory != null) {
-				collectChangedTests(testDirectory);
-			} else {
-				Main.printLine("[Warning] No test directory found in: " + baseLocation);
-			}
-		}
+		// Finnaly, retrieve all changes test classes, those of the original source locations were already collected
+		OriginalComparison.collectChangedTests(revisedReport.getSources(), sourceDiffReport, changedTests);
 		
 		// And loop through all files to collect the changed ones
 		Main.printLine("[Info] Done collecting changed test files");
@@ -184,22 +149,101 @@ public class OperiasReport {
 	}
 	
 	/**
-	 * Collect all the changed files in a given directory
-	 * @param directory
+	 * Compare the classes of a package in the original report to the revised report
+	 * @param oPackage Package of the original report
+	 * @return The changed and deleted classes of the package
 	 */
-	private void collectChangedTests(DiffDirectory directory) {
-		for(DiffFile file : directory.getFiles()) {
-			// Check if the file was changed, and not yet adedd to the list
-			if (file.getSourceState() != SourceDiffState.SAME && !this.changedTests.contains(file)) {
-				this.changedTests.add(file);
+	private List<OperiasFile> compareOriginalPackage(CoberturaPackage oPackage) {
+		List<OperiasFile> changedPackageClasses = new ArrayList<OperiasFile>();
+		CoberturaPackage rPackage = revisedReport.getPackage(oPackage.getName());
+		
+		// If package == null, the package was deleted, so the class was deleted, or the package name was new (will be marked in next phase) so we can ignore it
+		if (rPackage != null) {
+			for(CoberturaClass oClass : oPackage.getClasses()) {
+				
+				List<DiffFile> fileDiffs = originalComparison.getFiles(oClass, revisedReport.getSources());
+				
+				for(DiffFile fileDiff : fileDiffs) {
+					// Class was deleted!
+					if (fileDiff.getSourceState() == SourceDiffState.DELETED) {
+						
+						OperiasFile newOFile = originalComparison.getDeletedClass(oClass, fileDiff);
+						if (newOFile.getChanges().size() > 0) {
+							changedPackageClasses.add(newOFile);
+						}
+					} else  {
+						CoberturaClass rClass = rPackage.getClass(oClass.getName());
+						if (rClass != null) {
+							// We got the class, so we can compare the classes for any differences
+							OperiasFile newOFile = new OperiasFile(oClass, rClass, fileDiff);
+							if (newOFile.getChanges().size() > 0) {
+								changedPackageClasses.add(newOFile);
+							}
+						} else {
+							// @TODO: think about how to fix this? Using the current structure, a file can only be marked
+							// delete if the diff report says its deleted.
+							Main.printLine("[Warning] Found a innerclass which was deleted: " + oClass.getName());
+						}
+					}
+				}
+			}
+		} else {
+			// All classes must be marked as deleted
+			for(CoberturaClass oClass : oPackage.getClasses()) {
+				DiffFile fileDiff = originalComparison.getFile(oClass, revisedReport.getSources(), SourceDiffState.DELETED);
+				OperiasFile newOFile = originalComparison.getDeletedClass(oClass, fileDiff);
+				if (newOFile.getChanges().size() > 0) {
+					changedPackageClasses.add(newOFile);
+				}
 			}
 		}
 		
-		for(DiffDirectory subDirectory : directory.getDirectories()) {
-			collectChangedTests(subDirectory);
-		}
+		return changedPackageClasses;
 	}
+	
+	/**
+	 * Find the classes of a package in the revised report which are new
+	 * @param rPackage Package of the revised report
+	 * @return The new classes of the package
+	 */
+	private List<OperiasFile> compareRevisedPackage(CoberturaPackage rPackage) {
+		List<OperiasFile> changedPackageClasses = new ArrayList<OperiasFile>();
+		CoberturaPackage oPackage = originalReport.getPackage(rPackage.getName());
+		
+		if (oPackage == null) {
+			// Package was new so, all classes should be "new"
+			for(CoberturaClass rClass : rPackage.getClasses()) {
+				DiffFile fileDiff = sourceDiffReport.getFile(sourceLocations, rClass.getFileName(), SourceDiffState.NEW);
+				OperiasFile newOFile = new OperiasFile(rClass, fileDiff);
+				if (newOFile.getChanges().size() > 0) {
+					changedPackageClasses.add(newOFile);
+				}
+			}
+		} else {
+			// Package was found, check which classes are new
+			for(CoberturaClass rClass : rPackage.getClasses()) {
+				CoberturaClass oClass = oPackage.getClass(rClass.getName());
+				
 
+				DiffFile fileDiff = sourceDiffReport.getFile(sourceLocations, rClass.getFileName(), SourceDiffState.NEW);
+				
+				
+				if (fileDiff != null && oClass == null) {
+					// Class was new
+					OperiasFile newOFile = new OperiasFile(rClass, fileDiff);
+					if (newOFile.getChanges().size() > 0) {
+						changedPackageClasses.add(newOFile);
+					}
+				} else if (oClass == null) {
+					Main.printLine("[Warning] Found a innerclass which was added: " + rClass.getName());
+				
+				}
+			}
+		}
+		
+		return changedPackageClasses;
+	}
+	
 	/**
 	 * @return the changedClasses
 	 */
@@ -0,0 +1,196 @@
+package operias.report;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import operias.Main;
+import operias.coverage.CoberturaClass;
+import operias.coverage.CoberturaPackage;
+import operias.coverage.CoverageReport;
+import operias.diff.DiffDirectory;
+import operias.diff.DiffFile;
+import operias.diff.DiffReport;
+import operias.diff.SourceDiffState;
+
+/**
+ * The part of the comparison which only needs the original coverage report and the source diff report.
+ * It is made while the revised project is still being built, after which the operias report completes it
+ * with the revised coverage report and the revised source locations.
+ *
+ * It contains the source diffs of the original classes within the original source locations, the classes
+ * of which the source file was deleted and the changed tests within the original source locations.
+ */
+public class OriginalComparison {
+
+	/**
+	 * Original report of cobertura
+	 */
+	private CoverageReport originalReport;
+
+	/**
+	 * Source diff report between the directories
+	 */
+	private DiffReport sourceDiffReport;
+
+	/**
+	 * Source diffs of every original class within the original source locations, by class
+	 */
+	private Map<CoberturaClass, List<DiffFile>> classDiffs;
+
+	/**
+	 * Original classes of which the source file was deleted, by class and by the source diff of the file
+	 */
+	private Map<CoberturaClass, Map<DiffFile, OperiasFile>> deletedClasses;
+
+	/**
+	 * Changed tests within the original source locations
+	 */
+	private List<DiffFile> changedTests;
+
+	/**
+	 * Compare the original report to the source diff report
+	 * @param originalReport
+	 * @param sourceDiffReport
+	 */
+	public OriginalComparison(CoverageReport originalReport, DiffReport sourceDiffReport) {
+		this.originalReport = originalReport;
+		this.sourceDiffReport = sourceDiffReport;
+		this.classDiffs = new IdentityHashMap<CoberturaClass, List<DiffFile>>();
+		this.deletedClasses = new IdentityHashMap<CoberturaClass, Map<DiffFile, OperiasFile>>();
+		this.changedTests = new LinkedList<DiffFile>();
+
+		List<String> originalSources = originalReport.getSources();
+
+		for(CoberturaPackage oPackage : originalReport.getPackages()) {
+			for(CoberturaClass oClass : oPackage.getClasses()) {
+				List<DiffFile> fileDiffs = sourceDiffReport.getFiles(originalSources, oClass.getFileName());
+				classDiffs.put(oClass, fileDiffs);
+
+				for(DiffFile fileDiff : fileDiffs) {
+					if (fileDiff.getSourceState() == SourceDiffState.DELETED) {
+						Map<DiffFile, OperiasFile> classFiles = deletedClasses.get(oClass);
+						if (classFiles == null) {
+							classFiles = new HashMap<DiffFile, OperiasFile>();
+							deletedClasses.put(oClass, classFiles);
+						}
+						classFiles.put(fileDiff, new OperiasFile(oClass, fileDiff));
+					}
+				}
+			}
+		}
+
+		collectChangedTests(originalSources, sourceDiffReport, changedTests);
+	}
+
+	/**
+	 * Get the source diffs of an original class, first those within the original source locations
+	 * @param oClass Class of the original report
+	 * @param revisedSources Source locations of the revised report
+	 * @return The source diffs found for the file of the class
+	 */
+	List<DiffFile> getFiles(CoberturaClass oClass, List<String> revisedSources) {
+		List<DiffFile> fileDiffs = new ArrayList<DiffFile>(classDiffs.get(oClass));
+
+		for(DiffFile fileDiff : sourceDiffReport.getFiles(revisedSources, oClass.getFileName())) {
+			if (!fileDiffs.contains(fileDiff)) {
+				fileDiffs.add(fileDiff);
+			}
+		}
+
+		return fileDiffs;
+	}
+
+	/**
+	 * Get the first source diff of an original class with the given state, first looking within the original source locations
+	 * @param oClass Class of the original report
+	 * @param revisedSources Source locations of the revised report
+	 * @param state State of the source diff
+	 * @return The source diff, or null if not found
+	 */
+	DiffFile getFile(CoberturaClass oClass, List<String> revisedSources, SourceDiffState state) {
+		for(DiffFile fileDiff : classDiffs.get(oClass)) {
+			if (fileDiff.getSourceState() == state) {
+				return fileDiff;
+			}
+		}
+
+		return sourceDiffReport.getFile(revisedSources, oClass.getFileName(), state);
+	}
+
+	/**
+	 * Get the comparison of an original class of which the source file was deleted
+	 * @param oClass Class of the original report
+	 * @param fileDiff Source diff of the deleted file
+	 * @return The comparison, made beforehand if the file is within the original source locations
+	 */
+	OperiasFile getDeletedClass(CoberturaClass oClass, DiffFile fileDiff) {
+		Map<DiffFile, OperiasFile> classFiles = deletedClasses.get(oClass);
+
+		if (classFiles != null && classFiles.containsKey(fileDiff)) {
+			return classFiles.get(fileDiff);
+		}
+
+		return new OperiasFile(oClass, fileDiff);
+	}
+
+	/**
+	 * Collect the changed tests in the test directories belonging to the source locations, which are not collected yet
+	 * @param sourceLocations Source locations
+	 * @param sourceDiffReport Source diff report between the directories
+	 * @param changedTests Changed tests, to which the found tests are added
+	 */
+	static void collectChangedTests(List<String> sourceLocations, DiffReport sourceDiffReport, List<DiffFile> changedTests) {
+		for(String sourceLocation : sourceLocations) {
+			String baseLocation = sourceLocation.replaceAll("src/main/java", "src/test/java");
+			DiffDirectory testDirectory = sourceDiffReport.getDirectory(baseLocation);
+			if (testDirectory != null) {
+				collectChangedTests(testDirectory, changedTests);
+			} else {
+				Main.printLine("[Warning] No test directory found in: " + baseLocation);
+			}
+		}
+	}
+
+	/**
+	 * Collect all the changed files in a given directory
+	 * @param directory
+	 * @param changedTests Changed tests, to which the found tests are added
+	 */
+	private static void collectChangedTests(DiffDirectory directory, List<DiffFile> changedTests) {
+		for(DiffFile file : directory.getFiles()) {
+			// Check if the file was changed, and not yet adedd to the list
+			if (file.getSourceState() != SourceDiffState.SAME && !changedTests.contains(file)) {
+				changedTests.add(file);
+			}
+		}
+
+		for(DiffDirectory subDirectory : directory.getDirectories()) {
+			collectChangedTests(subDirectory, changedTests);
+		}
+	}
+
+	/**
+	 * @return the originalReport
+	 */
+	public CoverageReport getOriginalReport() {
+		return originalReport;
+	}
+
+	/**
+	 * @return the sourceDiffReport
+	 */
+	public DiffReport getSourceDiffReport() {
+		return sourceDiffReport;
+	}
+
+	/**
+	 * @return the changed tests within the original source locations
+	 */
+	List<DiffFile> getChangedTests() {
+		return changedTests;
+	}
+}
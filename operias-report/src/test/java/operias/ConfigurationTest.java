@@ -6,26 +6,23 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.security.InvalidParameterException;
-
-import operias.test.general.NoExitSecurityManager;
+import java.util.Arrays;
 
 import org.junit.After;
 import org.junit.Test;
 import org.junit.Before;
 import org.junit.Ignore;
-@Ignore
+
 public class ConfigurationTest {
 
 	@Before
 	public void setUp() {
 		Configuration.resetConfiguration();
-        System.setSecurityManager(new NoExitSecurityManager());
 	}
 	
 	@After
 	public void tearDown() {
         Configuration.resetConfiguration();
-        System.setSecurityManager(null);
 	}
 	
 	
@@ -67,7 +64,6 @@ public class ConfigurationTest {
 		Configuration.setOriginalCommitID("6143a8cf29eb7d56a0b65cee562d07c29250b71e");
 		Configuration.setRevisedCommitID("342e0d9ce8a625879a9c8c4cbe208320662b85");	
 
-        System.setSecurityManager(new NoExitSecurityManager());
         boolean exeptionThrown = false;
         try {
         	Configuration.setUpDirectoriesThroughGit();
@@ -76,13 +72,13 @@ public class ConfigurationTest {
         }
         
         assertTrue(exeptionThrown);
-        System.setSecurityManager(null);	
 	}
 	
 	/**
 	 * Set up git directories through repo url + branch/commit
 	 */
 	@Test
+	@Ignore("Clones from github")
 	public void testSettingUpDirectoriesUsingGit() {
 		Configuration.setTemporaryDirectory(new File("").getAbsolutePath() + "/target/gittests");
 		Configuration.setRevisedRepositoryURL("https://github.com/soosterwaal/operias.git");
@@ -223,6 +219,42 @@ public class ConfigurationTest {
 		
 	}
 	
+	/**
+	 * Test that the sparse paths and the surefire parallelism are set by their own short and long options
+	 */
+	@Test
+	public void testSparsePathsAndSurefireParallelArguments() {
+		Configuration.parseArguments(new String[] { "-sp", "samples,samples2", "-spl", "classes" });
+		assertEquals(Arrays.asList("samples", "samples2"), Configuration.getSparsePaths());
+		assertEquals("classes", Configuration.getSurefireParallel());
+		
+		Configuration.resetConfiguration();
+		
+		Configuration.parseArguments(new String[] { "-spl", "methods" });
+		assertEquals("methods", Configuration.getSurefireParallel());
+		assertNull(Configuration.getSparsePaths());
+		
+		Configuration.resetConfiguration();
+		
+		Configuration.parseArguments(new String[] { "--sparse-paths", "samples", "--surefire-parallel", "classes" });
+		assertEquals(Arrays.asList("samples"), Configuration.getSparsePaths());
+		assertEquals("classes", Configuration.getSurefireParallel());
+	}
+	
+	/**
+	 * Test that the output of maven is only kept when a log directory is given
+	 */
+	@Test
+	public void testMavenLogDirectoryArgument() {
+		assertNull(Configuration.getMavenLogDirectory());
+		
+		Configuration.parseArguments(new String[] { "-mld", "mavenLogs" });
+		assertEquals(new File("mavenLogs").getAbsolutePath(), Configuration.getMavenLogDirectory());
+		
+		Configuration.resetConfiguration();
+		assertNull(Configuration.getMavenLogDirectory());
+	}
+	
 	/**
 	 * Test parsing the command line arguments
 	 */
@@ -6,14 +6,12 @@ import java.io.File;
 import java.io.IOException;
 import java.util.Calendar;
 
-import operias.test.general.*;
-
 import org.apache.commons.io.FileUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
-@Ignore
+
 public class MainTest {
 	
     Main main;
@@ -24,19 +22,19 @@ public class MainTest {
 	@Before
 	public void setUp() {		
 		main = new Main();
-        System.setSecurityManager(new NoExitSecurityManager());
         Configuration.resetConfiguration();
 	}
 	
 	/**
-	 * Reset the security manager
+	 * Reset the configuration
 	 */
 	@After
 	public void tearDown() {
-        System.setSecurityManager(null);		
+		Configuration.resetConfiguration();
 	}
 	
 	@Test
+	@Ignore("Runs maven with the cobertura plugin")
 	/**
 	 * Test operis for a multi module maven project
 	 */
@@ -89,6 +87,7 @@ public class MainTest {
 	 * Test operis for a multi module maven project
 	 */
 	@Test
+	@Ignore("Runs maven with the cobertura plugin")
 	public void testFunctionalMultiModuleNameChange() {
 		
 		try {
@@ -122,6 +121,7 @@ public class MainTest {
 		assertTrue(new File(destDirectory).exists());
 	}
 	@Test
+	@Ignore("Runs maven with the cobertura plugin")
 	/**
 	 * Function test for a single module proejct
 	 */
@@ -175,6 +175,48 @@ public class MainTest {
 		assertTrue(new File(destDirectory + "/src.test.java.moreExamples.SwitchTest.java.html").exists());
 	}
 	
+	/**
+	 * Test that a run does not use the configuration of a previous run within the same JVM
+	 */
+	@Test
+	public void testRunTwice() {
+		String tempDirectory = new File("").getAbsolutePath() + "/target/temp" + Calendar.getInstance().getTime().getTime();
+		
+		try {
+			Main.run(new String[] { "--original-directory", "src/test/resources/mavenProject1", "--temp-directory", tempDirectory, "--unknown-option" });
+			fail("No exception was thrown");
+		} catch (OperiasException e) {
+			assertEquals(OperiasStatus.INVALID_ARGUMENTS, e.getStatus());
+		}
+		
+		// The original directory of the first run is not used, so the second run can not set it up through git instead of building the projects
+		try {
+			Main.run(new String[] { "--revised-directory", "src/test/resources/mavenProject2", "--temp-directory", tempDirectory });
+			fail("No exception was thrown");
+		} catch (OperiasException e) {
+			assertEquals(OperiasStatus.INVALID_ARGUMENTS, e.getStatus());
+		}
+		
+		assertNull(Configuration.getOriginalDirectory());
+		assertEquals("src/test/resources/mavenProject2", Configuration.getRevisedDirectory());
+		assertFalse(new File(tempDirectory).exists());
+	}
 	
-	
+	/**
+	 * Test that a run which was cancelled before it could start does not change the configuration
+	 */
+	@Test
+	public void testCancelledRun() {
+		ProcessControl processControl = new ProcessControl();
+		processControl.cancel();
+		
+		try {
+			Main.run(new String[] { "--revised-directory", "src/test/resources/mavenProject2" }, processControl);
+			fail("No exception was thrown");
+		} catch (OperiasException e) {
+			assertEquals(OperiasStatus.CANCELLED, e.getStatus());
+		}
+		
+		assertNull(Configuration.getRevisedDirectory());
+	}
 }
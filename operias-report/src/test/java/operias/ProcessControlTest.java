@@ -0,0 +1,127 @@
+package operias;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class ProcessControlTest {
+
+	/**
+	 * Return to the default run
+	 */
+	@After
+	public void tearDown() {
+		ProcessControl.setCurrentRun(null);
+	}
+
+	/**
+	 * Test that a process which ends in time returns its exit value
+	 * @throws Exception
+	 */
+	@Test
+	public void testExitValue() throws Exception {
+		ProcessControl run = new ProcessControl();
+		Process process = run.start(new ProcessBuilder("sh", "-c", "exit 3"));
+		assertEquals(3, run.waitFor(process, 10, "sh"));
+	}
+
+	/**
+	 * Test that a process which does not end in time is killed, together with the processes it started
+	 * @throws Exception
+	 */
+	@Test
+	public void testTimeout() throws Exception {
+		ProcessControl run = new ProcessControl();
+		long start = System.currentTimeMillis();
+		Process process = run.start(new ProcessBuilder("sh", "-c", "sleep 30 & wait"));
+
+		boolean exceptionThrown = false;
+		try {
+			run.waitFor(process, 1, "sh");
+		} catch (TimeoutException e) {
+			exceptionThrown = true;
+		}
+
+		assertTrue("No exception was thrown", exceptionThrown);
+		assertFalse(process.isAlive());
+		assertTrue(System.currentTimeMillis() - start < 10000);
+	}
+
+	/**
+	 * Test that cancelling kills the running processes of the run and prevents new processes from starting,
+	 * while other runs are not affected
+	 * @throws Exception
+	 */
+	@Test
+	public void testCancel() throws Exception {
+		final ProcessControl run = new ProcessControl();
+		ProcessControl otherRun = new ProcessControl();
+
+		final Process process = run.start(new ProcessBuilder("sleep", "30"));
+		Process otherProcess = otherRun.start(new ProcessBuilder("sleep", "30"));
+		final boolean[] cancelled = { false };
+
+		Thread waitingThread = new Thread() {
+			public void run() {
+				try {
+					run.waitFor(process, 0, "sleep");
+				} catch (CancellationException e) {
+					cancelled[0] = true;
+				} catch (Exception e) {
+					// Not cancelled
+				}
+			}
+		};
+		waitingThread.start();
+
+		run.cancel();
+		waitingThread.join(10000);
+
+		assertTrue("Waiting was not cancelled", cancelled[0]);
+		assertFalse(process.isAlive());
+
+		boolean exceptionThrown = false;
+		try {
+			run.start(new ProcessBuilder("sleep", "30"));
+		} catch (CancellationException e) {
+			exceptionThrown = true;
+		}
+		assertTrue("A process was started after cancelling", exceptionThrown);
+
+		// The other run continues
+		assertFalse(otherRun.isCancelled());
+		assertTrue(otherProcess.isAlive());
+		otherRun.cancel();
+		assertFalse(otherProcess.isAlive());
+	}
+
+	/**
+	 * Test that threads started within a run belong to the same run
+	 * @throws Exception
+	 */
+	@Test
+	public void testCurrentRun() throws Exception {
+		final ProcessControl defaultRun = ProcessControl.getCurrentRun();
+		final ProcessControl run = new ProcessControl();
+		final ProcessControl[] threadRun = { null };
+
+		ProcessControl.setCurrentRun(run);
+		assertSame(run, ProcessControl.getCurrentRun());
+
+		Thread thread = new Thread() {
+			public void run() {
+				threadRun[0] = ProcessControl.getCurrentRun();
+			}
+		};
+		thread.start();
+		thread.join();
+		assertSame(run, threadRun[0]);
+
+		ProcessControl.setCurrentRun(null);
+		assertSame(defaultRun, ProcessControl.getCurrentRun());
+	}
+}
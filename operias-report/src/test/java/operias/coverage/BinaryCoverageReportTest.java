@@ -0,0 +1,140 @@
+package operias.coverage;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+public class BinaryCoverageReportTest {
+
+	/**
+	 * Test that a report is read back exactly as it was written, and is smaller than the xml reports
+	 * @throws IOException
+	 */
+	@Test
+	public void testRoundTrip() throws IOException {
+		File coverageXML = new File("src/test/resources/coverage.xml");
+		CoverageReport expected = new CoverageReport(coverageXML, "src/test/resources/sureFireReports/").constructReport();
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		BinaryCoverageReport.write(expected, output);
+
+		long xmlSize = coverageXML.length() + FileUtils.sizeOfDirectory(new File("src/test/resources/sureFireReports/"));
+		assertTrue("Binary report is not smaller than the xml", output.size() * 4 < xmlSize);
+
+		CoverageReport actual = BinaryCoverageReport.read(new ByteArrayInputStream(output.toByteArray()));
+
+		assertEquals(expected.getLineRate(), actual.getLineRate(), 0);
+		assertEquals(expected.getConditionRate(), actual.getConditionRate(), 0);
+		assertEquals(expected.getSources(), actual.getSources());
+
+		assertEquals(expected.getPackages().size(), actual.getPackages().size());
+		for(int i = 0; i < expected.getPackages().size(); i++) {
+			CoberturaPackage expectedPackage = expected.getPackages().get(i);
+			CoberturaPackage actualPackage = actual.getPackages().get(i);
+
+			assertEquals(expectedPackage.getName(), actualPackage.getName());
+			assertEquals(expectedPackage.getLineRate(), actualPackage.getLineRate(), 0);
+			assertEquals(expectedPackage.getConditionRate(), actualPackage.getConditionRate(), 0);
+			assertSame(actualPackage, actual.getPackage(expectedPackage.getName()));
+
+			assertEquals(expectedPackage.getClasses().size(), actualPackage.getClasses().size());
+			for(int j = 0; j < expectedPackage.getClasses().size(); j++) {
+				assertClassEquals(expectedPackage.getClasses().get(j), actualPackage.getClasses().get(j));
+			}
+		}
+
+		assertEquals(expected.getAllTests().size(), actual.getAllTests().size());
+		for(int i = 0; i < expected.getAllTests().size(); i++) {
+			TestReport expectedTest = expected.getAllTests().get(i);
+			TestReport actualTest = actual.getAllTests().get(i);
+
+			assertEquals(expectedTest.getClassName(), actualTest.getClassName());
+			assertEquals(expectedTest.getCaseName(), actualTest.getCaseName());
+			assertEquals(expectedTest.getResult(), actualTest.getResult());
+			assertEquals(expectedTest.getMessage(), actualTest.getMessage());
+			assertEquals(expectedTest.getType(), actualTest.getType());
+			assertEquals(expectedTest.getTrace(), actualTest.getTrace());
+		}
+	}
+
+	/**
+	 * Test that reading a report does not consume the data following it in the stream
+	 * @throws IOException
+	 */
+	@Test
+	public void testDataAfterReport() throws IOException {
+		CoverageReport expected = new CoverageReport(new File("src/test/resources/coverage.xml"), "").constructReport();
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		BinaryCoverageReport.write(expected, output);
+		BinaryCoverageReport.write(expected, output);
+		output.write(42);
+
+		ByteArrayInputStream input = new ByteArrayInputStream(output.toByteArray());
+		BinaryCoverageReport.read(input);
+		CoverageReport actual = BinaryCoverageReport.read(input);
+
+		assertEquals(expected.getPackages().size(), actual.getPackages().size());
+		assertEquals(42, input.read());
+		assertEquals(-1, input.read());
+	}
+
+	/**
+	 * Test that other data is not accepted as a report
+	 */
+	@Test
+	public void testInvalidReport() {
+		boolean exceptionThrown = false;
+
+		try {
+			BinaryCoverageReport.read(new ByteArrayInputStream("<?xml version=\"1.0\"?>".getBytes()));
+		} catch (IOException e) {
+			exceptionThrown = true;
+		}
+
+		assertTrue("No exception was thrown", exceptionThrown);
+	}
+
+	/**
+	 * Compare all lines and conditions of two classes
+	 * @param expected
+	 * @param actual
+	 */
+	private void assertClassEquals(CoberturaClass expected, CoberturaClass actual) {
+		assertEquals(expected.getName(), actual.getName());
+		assertEquals(expected.getFileName(), actual.getFileName());
+		assertEquals(expected.getPackageName(), actual.getPackageName());
+		assertEquals(expected.getLineRate(), actual.getLineRate(), 0);
+		assertEquals(expected.getConditionRate(), actual.getConditionRate(), 0);
+		assertEquals(expected.getLineCount(), actual.getLineCount());
+		assertEquals(expected.getConditionCount(), actual.getConditionCount());
+		assertEquals(expected.getMaxLineNumber(), actual.getMaxLineNumber());
+
+		List<CoberturaLine> expectedLines = expected.getLines();
+		List<CoberturaLine> actualLines = actual.getLines();
+		assertEquals(expectedLines, actualLines);
+
+		for(int i = 0; i < expectedLines.size(); i++) {
+			CoberturaLine expectedLine = expectedLines.get(i);
+			CoberturaLine actualLine = actualLines.get(i);
+
+			assertEquals(expectedLine.isConditionCompletelyCovered(), actualLine.isConditionCompletelyCovered());
+			assertEquals(expectedLine.getConditions().size(), actualLine.getConditions().size());
+			for(int j = 0; j < expectedLine.getConditions().size(); j++) {
+				CoberturaCondition expectedCondition = expectedLine.getConditions().get(j);
+				CoberturaCondition actualCondition = actualLine.getConditions().get(j);
+
+				assertEquals(expectedCondition.getNumber(), actualCondition.getNumber());
+				assertEquals(expectedCondition.getType(), actualCondition.getType());
+				assertEquals(expectedCondition.getCoverage(), actualCondition.getCoverage());
+			}
+		}
+	}
+}
@@ -1,6 +1,9 @@
 package operias.coverage;
 
 import static org.junit.Assert.*;
+
+import java.util.List;
+
 import operias.coverage.CoberturaClass;
 import operias.coverage.CoberturaLine;
 
@@ -23,4 +26,83 @@ public class CoberturaClassTest {
 		assertNull(cClass.tryGetLine(2));
 		assertNull(cClass.tryGetLine(4));
 	}
+	
+	/**
+	 * Test the line information kept by the class, for lines with and without conditions
+	 */
+	@Test
+	public void testLineInformation() {
+		CoberturaClass cClass = new CoberturaClass("simple", "simpleTest.java" , null, 1,1);
+		
+		CoberturaLine line2 = new CoberturaLine(2, 0, false, false);
+		CoberturaLine line5 = new CoberturaLine(5, 3, true, false);
+		line5.addCondition(new CoberturaCondition(0, "jump", "50%"));
+		line5.addCondition(new CoberturaCondition(1, "jump", "50%"));
+		CoberturaLine line40 = new CoberturaLine(40, 1, false, false);
+		
+		cClass.addLine(line2);
+		cClass.addLine(line5);
+		cClass.addLine(line40);
+		
+		assertEquals(3, cClass.getLineCount());
+		assertEquals(40, cClass.getMaxLineNumber());
+		assertEquals(2, cClass.getConditionCount());
+		
+		assertEquals(line2, cClass.tryGetLine(2));
+		assertEquals(2, cClass.tryGetLine(5).getConditions().size());
+		assertFalse(cClass.tryGetLine(5).isConditionCompletelyCovered());
+		
+		assertFalse(cClass.tryGetLineCoverage(2));
+		assertFalse(cClass.tryGetLineCoverage(5));
+		assertTrue(cClass.tryGetLineCoverage(40));
+		assertNull(cClass.tryGetLineCoverage(3));
+		assertNull(cClass.tryGetLineCoverage(-1));
+		assertNull(cClass.tryGetLineCoverage(41));
+		
+		assertTrue(cClass.isConditionLine(5));
+		assertFalse(cClass.isConditionLine(2));
+		assertFalse(cClass.hasLine(0));
+		
+		List<CoberturaLine> lines = cClass.getLines();
+		assertEquals(3, lines.size());
+		assertEquals(line2, lines.get(0));
+		assertEquals(line5, lines.get(1));
+		assertEquals(line40, lines.get(2));
+	}
+	
+	/**
+	 * Test that lines with the same number are merged
+	 */
+	@Test
+	public void testDuplicateLine() {
+		CoberturaClass cClass = new CoberturaClass("simple", "simpleTest.java" , null, 1,1);
+		
+		CoberturaLine line5 = new CoberturaLine(5, 2, true, true);
+		line5.addCondition(new CoberturaCondition(0, "jump", "100%"));
+		CoberturaLine duplicateLine5 = new CoberturaLine(5, 1, true, false);
+		duplicateLine5.addCondition(new CoberturaCondition(0, "jump", "50%"));
+		
+		cClass.addLine(new CoberturaLine(2, 0, false, false));
+		cClass.addLine(line5);
+		assertEquals(2, cClass.getLines().size());
+		
+		cClass.addLine(duplicateLine5);
+		cClass.addLine(new CoberturaLine(2, 4, false, false));
+		
+		assertEquals(2, cClass.getLineCount());
+		assertEquals(2, cClass.getLines().size());
+		assertEquals(2, cClass.getConditionCount());
+		assertEquals(1, line5.getConditions().size());
+		
+		assertEquals(4, cClass.tryGetLine(2).getHits());
+		assertTrue(cClass.tryGetLineCoverage(2));
+		assertEquals(3, cClass.tryGetLine(5).getHits());
+		assertFalse(cClass.tryGetLineCoverage(5));
+		assertSame(cClass.getLines(), cClass.getLines());
+		assertSame(cClass.getLines().get(1), cClass.tryGetLine(5));
+		assertSame(cClass.tryGetLine(2), cClass.tryGetLine(2));
+		
+		cClass.addLine(new CoberturaLine(2, 1, false, false));
+		assertEquals(5, cClass.tryGetLine(2).getHits());
+	}
 }
@@ -1,12 +1,12 @@
 package operias.coverage;
 
 import static org.junit.Assert.*;
+import operias.OperiasException;
 import operias.OperiasStatus;
 
 import org.junit.*;
 
 import operias.coverage.Cobertura;
-import operias.test.general.*;
 @Ignore
 public class CoberturaTest {
 
@@ -36,7 +36,6 @@ public class CoberturaTest {
 	 */
 	@Test
 	public void testCoverageXMLNotFound() {
-        System.setSecurityManager(new NoExitSecurityManager());
 		boolean exceptionThrown = false;
 		
         cobertura = new Cobertura("src/test/resources/simpleMavenProject");
@@ -44,11 +43,10 @@ public class CoberturaTest {
 		try {
 			cobertura.executeCobertura();
 		}
-	    catch (ExitException e) {
+	    catch (OperiasException e) {
 	    	exceptionThrown = true;
-            assertEquals("Exit status invalid", OperiasStatus.COVERAGE_XML_NOT_FOUND.ordinal(), e.status);
+            assertEquals("Exit status invalid", OperiasStatus.COVERAGE_XML_NOT_FOUND, e.getStatus());
 	    }
-		System.setSecurityManager(null);
 		assertTrue("No exception was thrown", exceptionThrown);
 	}
 	
@@ -57,16 +55,15 @@ public class CoberturaTest {
 	 */
 	@Test
 	public void testInvalidDirectory() {
-		System.setSecurityManager(new NoExitSecurityManager());
 		boolean exceptionThrown = false;
 		
         cobertura = new Cobertura(null);
 		try {
 			cobertura.executeCobertura();
 		}
-	    catch (ExitException e) {
+	    catch (OperiasException e) {
 	    	exceptionThrown = true;
-            assertEquals("Exit status invalid", OperiasStatus.ERROR_COBERTURA_TASK_CREATION.ordinal(), e.status);
+            assertEquals("Exit status invalid", OperiasStatus.ERROR_COBERTURA_TASK_CREATION, e.getStatus());
 	    }
 		
 		exceptionThrown = false;
@@ -75,14 +72,13 @@ public class CoberturaTest {
 		try {
 			cobertura.executeCobertura();
 		}
-	    catch (ExitException e) {
+	    catch (OperiasException e) {
 	    	exceptionThrown = true;
-            assertEquals("Exit status invalid", OperiasStatus.ERROR_COBERTURA_TASK_OPERIAS_EXECUTION.ordinal(), e.status);
+            assertEquals("Exit status invalid", OperiasStatus.ERROR_COBERTURA_TASK_OPERIAS_EXECUTION, e.getStatus());
 	    }
 
 		assertTrue("No exception was thrown", exceptionThrown);
 		
-		System.setSecurityManager(null);
 	}
 	
 }
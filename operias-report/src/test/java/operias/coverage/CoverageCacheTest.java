@@ -0,0 +1,97 @@
+package operias.coverage;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import operias.Configuration;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CoverageCacheTest {
+
+	/**
+	 * Directory used as coverage cache
+	 */
+	private File cacheDirectory = new File("target/coverageCache");
+
+	/**
+	 * Set up an empty coverage cache
+	 * @throws IOException
+	 */
+	@Before
+	public void setUp() throws IOException {
+		if (cacheDirectory.exists()) {
+			FileUtils.deleteDirectory(cacheDirectory);
+		}
+		Configuration.setCoverageCacheDirectory(cacheDirectory.getPath());
+	}
+
+	/**
+	 * Remove the coverage cache
+	 * @throws IOException
+	 */
+	@After
+	public void tearDown() throws IOException {
+		Configuration.resetConfiguration();
+		FileUtils.deleteDirectory(cacheDirectory);
+	}
+
+	/**
+	 * Test that projects with the same content have the same key, regardless of their location
+	 * @throws Exception
+	 */
+	@Test
+	public void testKey() throws Exception {
+		File copy = new File("target/coverageCacheProject");
+		FileUtils.copyDirectory(new File("src/test/resources/mavenProject1"), copy);
+
+		try {
+			String key = CoverageCache.getKey("src/test/resources/mavenProject1");
+
+			assertEquals(key, CoverageCache.getKey(copy.getPath()));
+			assertFalse(key.equals(CoverageCache.getKey("src/test/resources/mavenProject2")));
+
+			// Build output does not change the key
+			new File(copy, "target").mkdir();
+			FileUtils.writeStringToFile(new File(copy, "target/output.txt"), "output", "UTF-8");
+			assertEquals(key, CoverageCache.getKey(copy.getPath()));
+
+			FileUtils.writeStringToFile(new File(copy, "pom.xml"), "changed", "UTF-8");
+			assertFalse(key.equals(CoverageCache.getKey(copy.getPath())));
+		} finally {
+			FileUtils.deleteDirectory(copy);
+		}
+	}
+
+	/**
+	 * Test storing and loading coverage results, the sources are moved to the directory of the project
+	 * @throws Exception
+	 */
+	@Test
+	public void testStoreAndLoad() throws Exception {
+		String originalDirectory = "/Users/sebas/Documents/Eclipse Workspace/mavenProject1";
+		String key = CoverageCache.getKey("src/test/resources/mavenProject1");
+
+		assertNull(CoverageCache.load(key, "src/test/resources/mavenProject1"));
+
+		CoverageReport expected = new CoverageReport(new File("src/test/resources/coverageMavenProject1_1.xml"), "src/test/resources/sureFireReports/").constructReport();
+		CoverageCache.store(key, originalDirectory, expected);
+
+		CoverageReport cached = CoverageCache.load(key, "src/test/resources/mavenProject1");
+
+		assertNotNull(cached);
+		assertEquals(expected.getLineRate(), cached.getLineRate(), 0.0001);
+		assertEquals(expected.getConditionRate(), cached.getConditionRate(), 0.0001);
+		assertEquals(expected.getPackages().size(), cached.getPackages().size());
+		assertEquals(expected.getAllTests().size(), cached.getAllTests().size());
+		assertEquals(expected.getFailedTests().size(), cached.getFailedTests().size());
+
+		assertEquals(1, cached.getSources().size());
+		assertEquals(new File("src/test/resources/mavenProject1/src/main/java").getAbsolutePath(), cached.getSources().get(0));
+	}
+}
@@ -4,37 +4,27 @@ import static org.junit.Assert.*;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 
+import operias.Configuration;
+import operias.OperiasException;
 import operias.OperiasStatus;
 import operias.coverage.CoberturaClass;
 import operias.coverage.CoberturaLine;
 import operias.coverage.CoberturaPackage;
 import operias.coverage.CoverageReport;
-import operias.test.general.ExitException;
-import operias.test.general.NoExitSecurityManager;
 
 import org.junit.After;
-import org.junit.Before;
 import org.junit.Test;
 
 public class CoverageReportTest {
 
 	/**
-	 * Set up the security manager
-	 */
-	@Before
-	public void setUp() {
-		System.setSecurityManager(new NoExitSecurityManager());	
-	}
-	
-	/**
-	 * Tear down the security manager
+	 * Reset the configuration
 	 */
 	@After
 	public void tearDown() {
-		System.setSecurityManager(null);	
+		Configuration.resetConfiguration();
 	}
 	
 	/**
@@ -46,9 +36,9 @@ public class CoverageReportTest {
 		
 		try {
 			new CoverageReport((File)null, "").constructReport();;
-		} catch(ExitException e) {
+		} catch(OperiasException e) {
 			exceptionThrown = true;
-			assertEquals("Wrong exit code", OperiasStatus.ERROR_COBERTURA_INVALID_XML.ordinal(), e.status);
+			assertEquals("Wrong exit code", OperiasStatus.ERROR_COBERTURA_INVALID_XML, e.getStatus());
 		}
 		assertTrue("No exception was thrown", exceptionThrown);
 		
@@ -56,9 +46,9 @@ public class CoverageReportTest {
 		
 		try {
 			new CoverageReport(new File(""), "").constructReport();;
-		} catch(ExitException e) {
+		} catch(OperiasException e) {
 			exceptionThrown = true;
-			assertEquals("Wrong exit code", OperiasStatus.ERROR_COBERTURA_INVALID_XML.ordinal(), e.status);
+			assertEquals("Wrong exit code", OperiasStatus.ERROR_COBERTURA_INVALID_XML, e.getStatus());
 		}
 		assertTrue("No exception was thrown", exceptionThrown);
 		
@@ -66,9 +56,9 @@ public class CoverageReportTest {
 		
 		try {
 			new CoverageReport(new File("src/test/resources/nonExistingFile.xml"), "").constructReport();;
-		} catch(ExitException e) {
+		} catch(OperiasException e) {
 			exceptionThrown = true;
-			assertEquals("Wrong exit code", OperiasStatus.ERROR_COBERTURA_INVALID_XML.ordinal(), e.status);
+			assertEquals("Wrong exit code", OperiasStatus.ERROR_COBERTURA_INVALID_XML, e.getStatus());
 		}
 		assertTrue("No exception was thrown", exceptionThrown);
 	}
@@ -109,7 +99,7 @@ public class CoverageReportTest {
 		assertEquals(1.0, cClass.getConditionRate(), delta);
 		
 		// Check lines in class
-		LinkedList<CoberturaLine> classLines = (LinkedList<CoberturaLine>) cClass.getLines();
+		List<CoberturaLine> classLines = cClass.getLines();
 		
 		assertEquals(26, classLines.size());
 		
@@ -130,4 +120,94 @@ public class CoverageReportTest {
 			} 
 		}
 	}
+	
+	/**
+	 * Test that the DOM parser gives the same report as the streaming parser, without loading the dtd from the network
+	 */
+	@Test
+	public void testDocumentParserEqualsStreamParser() {
+		File file = new File("src/test/resources/coverageMavenProject2.xml");
+		
+		CoverageReport streamReport = new CoverageReport(file, "src/test/resources/sureFireReports/").constructReport();
+		
+		Configuration.setStreamingCoverageParserEnabled(false);
+		CoverageReport documentReport = new CoverageReport(file, "src/test/resources/sureFireReports/").constructReport();
+		
+		assertEquals(documentReport.getLineRate(), streamReport.getLineRate(), 0.0001);
+		assertEquals(documentReport.getConditionRate(), streamReport.getConditionRate(), 0.0001);
+		assertEquals(documentReport.getSources(), streamReport.getSources());
+		assertEquals(documentReport.getAllTests().size(), streamReport.getAllTests().size());
+		assertEquals(documentReport.getPackages().size(), streamReport.getPackages().size());
+		
+		for(int i = 0; i < documentReport.getPackages().size(); i++) {
+			CoberturaPackage documentPackage = documentReport.getPackages().get(i);
+			CoberturaPackage streamPackage = streamReport.getPackages().get(i);
+			
+			assertEquals(documentPackage.getName(), streamPackage.getName());
+			assertEquals(documentPackage.getClasses().size(), streamPackage.getClasses().size());
+			assertEquals(documentPackage.getConditionCount(), streamPackage.getConditionCount());
+			
+			for(int j = 0; j < documentPackage.getClasses().size(); j++) {
+				CoberturaClass documentClass = documentPackage.getClasses().get(j);
+				CoberturaClass streamClass = streamPackage.getClasses().get(j);
+				
+				assertEquals(documentClass.getName(), streamClass.getName());
+				assertEquals(documentClass.getFileName(), streamClass.getFileName());
+				assertEquals(documentClass.getLines(), streamClass.getLines());
+				
+				for(int k = 0; k < documentClass.getLines().size(); k++) {
+					assertEquals(documentClass.getLines().get(k).isCovered(), streamClass.getLines().get(k).isCovered());
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Test that a line reported twice within a class is merged into a single line by both parsers,
+	 * while the lines within the methods are not counted again
+	 */
+	@Test
+	public void testDuplicateLines() {
+		File file = new File("src/test/resources/coverageDuplicateLines.xml");
+		
+		for(boolean streaming : new boolean[] { true, false }) {
+			Configuration.setStreamingCoverageParserEnabled(streaming);
+			CoverageReport report = new CoverageReport(file, "").constructReport();
+			CoberturaClass cClass = report.getPackage("example").getClass("example.Listener");
+			
+			assertEquals(3, cClass.getLineCount());
+			assertEquals(3, cClass.getLines().size());
+			assertEquals(5, cClass.tryGetLine(5).getHits());
+			assertEquals(1, cClass.tryGetLine(7).getHits());
+			assertEquals(2, cClass.tryGetLine(7).getConditions().size());
+			assertFalse(cClass.tryGetLine(7).isConditionCompletelyCovered());
+			assertFalse(cClass.tryGetLineCoverage(7));
+			assertFalse(cClass.tryGetLineCoverage(9));
+		}
+	}
+	
+	/**
+	 * Test looking up packages and classes by their name
+	 */
+	@Test
+	public void testPackageAndClassLookup() {
+		CoverageReport report = new CoverageReport(new File("src/test/resources/coverage.xml"), "").constructReport();
+		
+		CoberturaPackage cPackage = report.getPackage("operias");
+		assertSame(report.getPackages().get(0), cPackage);
+		assertTrue(report.packageExists("operias"));
+		assertFalse(report.packageExists("nonExistingPackage"));
+		assertNull(report.getPackage("nonExistingPackage"));
+		
+		assertSame(cPackage.getClasses().get(0), cPackage.getClass("operias.Configuration"));
+		assertNull(cPackage.getClass("operias.NonExistingClass"));
+		
+		CoberturaPackage newPackage = new CoberturaPackage("newPackage", 1, 1);
+		CoberturaClass newClass = new CoberturaClass("newPackage.NewClass", "newPackage/NewClass.java", "newPackage", 1, 1);
+		newPackage.addClass(newClass);
+		report.addPackage(newPackage);
+		
+		assertSame(newPackage, report.getPackage("newPackage"));
+		assertSame(newClass, report.getPackage("newPackage").getClass("newPackage.NewClass"));
+	}
 }
@@ -0,0 +1,82 @@
+package operias.coverage;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import operias.Configuration;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class CpuBudgetTest {
+
+	/**
+	 * Reset the budget and the planned builds
+	 */
+	@After
+	public void tearDown() {
+		Configuration.resetConfiguration();
+		CpuBudget.setPlannedBuilds(1);
+	}
+
+	/**
+	 * Test that the budget is divided over the planned builds
+	 */
+	@Test
+	public void testShare() {
+		Configuration.setCpuBudget(8);
+		CpuBudget.setPlannedBuilds(2);
+		assertEquals(4, CpuBudget.getShare());
+
+		// A build which is not needed leaves its processors to the other build
+		CpuBudget.cancelPlannedBuild();
+		assertEquals(8, CpuBudget.getShare());
+		CpuBudget.cancelPlannedBuild();
+		assertEquals(8, CpuBudget.getShare());
+
+		// Every build gets at least one processor
+		Configuration.setCpuBudget(1);
+		CpuBudget.setPlannedBuilds(2);
+		assertEquals(1, CpuBudget.getShare());
+	}
+	
+	/**
+	 * Test that the maven threads are always passed, a single thread included
+	 */
+	@Test
+	public void testParallelismArguments() {
+		Configuration.setCpuBudget(4);
+		List<String> arguments = Cobertura.getParallelismArguments();
+		assertEquals(Arrays.asList("-T", "1"), arguments.subList(0, 2));
+		
+		Configuration.setMavenThreads(0);
+		arguments = Cobertura.getParallelismArguments();
+		assertEquals(Arrays.asList("-T", "4"), arguments.subList(0, 2));
+	}
+	
+	/**
+	 * Test that the pool uses named daemon threads
+	 * @throws Exception
+	 */
+	@Test
+	public void testPool() throws Exception {
+		Configuration.setCpuBudget(2);
+		ExecutorService pool = CpuBudget.newPool("Test");
+		try {
+			Thread thread = pool.submit(new Callable<Thread>() {
+				public Thread call() {
+					return Thread.currentThread();
+				}
+			}).get();
+			
+			assertEquals("Test1", thread.getName());
+			assertTrue(thread.isDaemon());
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package operias.coverage;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+public class MavenOutputTest {
+
+	/**
+	 * Test that the output is logged and divided into phases
+	 * @throws IOException
+	 */
+	@Test
+	public void testPhases() throws IOException {
+		String output = "[INFO] Scanning for projects...\n" +
+				"[INFO] --- maven-clean-plugin:2.5:clean (default-clean) @ project ---\n" +
+				"[INFO] --- maven-resources-plugin:2.6:resources (default-resources) @ project ---\n" +
+				"[INFO] --- maven-compiler-plugin:3.1:compile (default-compile) @ project ---\n" +
+				"[INFO] --- cobertura-maven-plugin:2.7:instrument (default-cli) @ project ---\n" +
+				"[INFO] --- maven-compiler-plugin:3.1:testCompile (default-testCompile) @ project ---\n" +
+				"[INFO] --- maven-surefire-plugin:2.12.4:test (default-test) @ project ---\n" +
+				"Running example.MusicTest\n" +
+				"[INFO] --- cobertura-maven-plugin:2.7:cobertura (default-cli) @ project ---\n" +
+				"[INFO] BUILD SUCCESS\n";
+
+		File logFile = new File("target/mavenOutput/maven.log");
+		try {
+			MavenOutput mavenOutput = new MavenOutput(new ByteArrayInputStream(output.getBytes("UTF-8")), logFile);
+			mavenOutput.run();
+
+			assertEquals(Arrays.asList("startup", "clean", "compile", "instrumentation", "test", "report"), new ArrayList<String>(mavenOutput.getPhaseDurations().keySet()));
+
+			String log = FileUtils.readFileToString(logFile, "UTF-8");
+			assertTrue(log.startsWith("[INFO] Scanning for projects..."));
+			assertTrue(log.contains("Running example.MusicTest"));
+			assertTrue(log.contains("[Operias] Phase durations: startup "));
+		} finally {
+			FileUtils.deleteDirectory(logFile.getParentFile());
+		}
+	}
+
+	/**
+	 * Test that the output is read completely without a log file
+	 */
+	@Test
+	public void testWithoutLog() throws IOException {
+		ByteArrayInputStream input = new ByteArrayInputStream("[INFO] --- maven-surefire-plugin:2.12.4:test (default-test) @ project ---\n".getBytes("UTF-8"));
+		MavenOutput mavenOutput = new MavenOutput(input, null);
+		mavenOutput.run();
+
+		assertEquals(0, input.available());
+		assertTrue(mavenOutput.getPhaseDurations().containsKey("test"));
+	}
+}
@@ -0,0 +1,88 @@
+package operias.coverage;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ModuleCoverageTest {
+
+	/**
+	 * Test that the modules are read from the pom file
+	 * @throws Exception
+	 */
+	@Test
+	public void testModules() throws Exception {
+		assertEquals(Arrays.asList("samples", "samples2"), ModuleCoverage.getModules(new File("src/test/resources/multiProject1")));
+		assertTrue(ModuleCoverage.getModules(new File("src/test/resources/simpleMavenProject")).isEmpty());
+	}
+
+	/**
+	 * Test that the changed files are mapped to their modules
+	 * @throws Exception
+	 */
+	@Test
+	public void testChangedModules() throws Exception {
+		assertEquals(Arrays.asList("samples", "samples2"), ModuleCoverage.getChangedModules("src/test/resources/multiProject1", "src/test/resources/multiProject2"));
+		assertEquals(new ArrayList<String>(), ModuleCoverage.getChangedModules("src/test/resources/multiProject1", "src/test/resources/multiProject1"));
+
+		// Projects without modules are always built completely
+		assertNull(ModuleCoverage.getChangedModules("src/test/resources/simpleMavenProject", "src/test/resources/simpleMavenProject2"));
+
+		// As well as projects of which the modules changed
+		assertNull(ModuleCoverage.getChangedModules("src/test/resources/multiProjectModuleNameChange1", "src/test/resources/multiProjectModuleNameChange2"));
+	}
+
+	/**
+	 * Test that the coverage of the unchanged modules is taken from the original report
+	 * @throws Exception
+	 */
+	@Test
+	public void testCombine() throws Exception {
+		String originalDirectory = new File("src/test/resources/multiProject1").getAbsolutePath();
+		String revisedDirectory = new File("src/test/resources/multiProject2").getAbsolutePath();
+
+		CoverageReport originalReport = new CoverageReport(0.5, 1);
+		originalReport.getSources().add(originalDirectory + "/samples/src/main/java");
+		originalReport.getSources().add(originalDirectory + "/samples2/src/main/java");
+		originalReport.addPackage(createPackage("simpleMavenProject", "Simple", 1));
+		originalReport.addPackage(createPackage("simpleMavenProject2", "Simple2", 0));
+
+		CoverageReport builtReport = new CoverageReport(1, 1);
+		builtReport.getSources().add(revisedDirectory + "/samples2/src/main/java");
+		builtReport.addPackage(createPackage("simpleMavenProject2", "Simple2", 1));
+
+		CoverageReport report = ModuleCoverage.combine(builtReport, originalReport, originalDirectory, revisedDirectory, Arrays.asList("samples2"));
+
+		assertEquals(2, report.getPackages().size());
+		assertSame(originalReport.getPackage("simpleMavenProject").getClass("simpleMavenProject.Simple"), report.getPackage("simpleMavenProject").getClass("simpleMavenProject.Simple"));
+		assertSame(builtReport.getPackage("simpleMavenProject2").getClass("simpleMavenProject2.Simple2"), report.getPackage("simpleMavenProject2").getClass("simpleMavenProject2.Simple2"));
+		assertEquals(1, report.getLineRate(), 0.0001);
+
+		List<String> sources = report.getSources();
+		assertEquals(2, sources.size());
+		assertTrue(sources.contains(revisedDirectory + "/samples/src/main/java"));
+		assertTrue(sources.contains(revisedDirectory + "/samples2/src/main/java"));
+	}
+
+	/**
+	 * Create a package with a single class of two lines
+	 * @param packageName
+	 * @param className Name of the class within the package
+	 * @param lineRate
+	 * @return
+	 */
+	private CoberturaPackage createPackage(String packageName, String className, double lineRate) {
+		CoberturaClass cClass = new CoberturaClass(packageName + "." + className, packageName + "/" + className + ".java", packageName, lineRate, 1);
+		cClass.addLine(new CoberturaLine(1, lineRate > 0 ? 1 : 0, false, false));
+		cClass.addLine(new CoberturaLine(2, lineRate > 0 ? 1 : 0, false, false));
+
+		CoberturaPackage cPackage = new CoberturaPackage(packageName, lineRate, 1);
+		cPackage.addClass(cClass);
+		return cPackage;
+	}
+}
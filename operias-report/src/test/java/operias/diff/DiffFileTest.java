@@ -2,6 +2,7 @@ package operias.diff;
 
 import static org.junit.Assert.*;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -97,6 +98,46 @@ public class DiffFileTest {
 		assertEquals(0, diffFile.getChanges().size());
 	}
 	
+	/**
+	 * Two distinct files with the same content are the same, the line counts are still available
+	 */
+	@Test
+	public void testFileDiffIdenticalContent() {
+		DiffFile diffFile = null;
+		try {
+			diffFile = DiffFile.compareFile("src/test/resources/simpleMavenProject/src/main/java/simpleMavenProject/Simple.java", 
+					"src/test/resources/multiProject1/samples/src/main/java/simpleMavenProject/Simple.java");
+		} catch (Exception e) {
+			fail();
+		}
+		
+		assertEquals(SourceDiffState.SAME, diffFile.getSourceState());
+		assertEquals(0, diffFile.getChanges().size());
+		assertEquals(78, diffFile.getOriginalLineCount());
+		assertEquals(78, diffFile.getRevisedLineCount());
+	}
+	
+	/**
+	 * Files with the same content on disk are still read from a source which provides a different content
+	 */
+	@Test
+	public void testFileDiffIdenticalContentOtherSource() {
+		String originalFileName = "src/test/resources/simpleMavenProject/src/main/java/simpleMavenProject/Simple.java";
+		
+		SourceProvider revisedSource = new AddedLineSourceProvider();
+		
+		DiffFile diffFile = null;
+		try {
+			diffFile = DiffFile.compareFile(originalFileName, "src/test/resources/multiProject1/samples/src/main/java/simpleMavenProject/Simple.java",
+					new FileSystemSourceProvider(), revisedSource);
+		} catch (Exception e) {
+			fail();
+		}
+		
+		assertEquals(SourceDiffState.CHANGED, diffFile.getSourceState());
+		assertEquals(1, diffFile.getChanges().size());
+	}
+	
 	/**
 	 * Compare two files to each other
 	 */
@@ -138,4 +179,75 @@ public class DiffFileTest {
 		insert.add("	public void fail() { System.exit(0); }");
 		assertEquals(insert, changes.get(2).getRevised().getLines());
 	}
+	
+	/**
+	 * Look up changes by their position, both directly and through a change cursor
+	 */
+	@Test
+	public void testGetChangeByPosition() {
+		DiffFile diffFile = null;
+		try {
+			diffFile = DiffFile.compareFile("src/test/resources/diffFile/file1.txt", "src/test/resources/diffFile/file2.txt");
+		} catch (Exception e) {
+			fail();
+		}
+		
+		List<Delta> changes = diffFile.getChanges();
+		
+		for(Delta change : changes) {
+			assertSame(change, diffFile.tryGetChange(change.getOriginal().getPosition(), change.getRevised().getPosition()));
+		}
+		assertNull(diffFile.tryGetChange(0, 0));
+		assertNull(diffFile.tryGetChange(3, 4));
+		
+		DiffFile.ChangeCursor cursor = diffFile.getChangeCursor();
+		assertNull(cursor.tryGetChange(0, 0));
+		assertSame(changes.get(0), cursor.tryGetChange(3, 3));
+		assertSame(changes.get(1), cursor.tryGetChange(6, 6));
+		assertNull(cursor.tryGetChange(8, 7));
+		assertSame(changes.get(2), cursor.tryGetChange(changes.get(2).getOriginal().getPosition(), changes.get(2).getRevised().getPosition()));
+		
+		// The cursor only moves forward
+		assertNull(cursor.tryGetChange(3, 3));
+	}
+	
+	/**
+	 * Provides the files of the file system with an extra line at the end, without changing the files on disk
+	 */
+	private static class AddedLineSourceProvider implements SourceProvider {
+		
+		private SourceProvider fileSystem = new FileSystemSourceProvider();
+		
+		@Override
+		public String[] list(String directoryName) {
+			return fileSystem.list(directoryName);
+		}
+		
+		@Override
+		public boolean isDirectory(String name) {
+			return fileSystem.isDirectory(name);
+		}
+		
+		@Override
+		public boolean isHidden(String name) {
+			return fileSystem.isHidden(name);
+		}
+		
+		@Override
+		public List<String> readLines(String fileName) throws IOException {
+			List<String> lines = fileSystem.readLines(fileName);
+			lines.add("// Added");
+			return lines;
+		}
+		
+		@Override
+		public String getContentID(String fileName) {
+			return null;
+		}
+		
+		@Override
+		public void close() {
+			
+		}
+	}
 }
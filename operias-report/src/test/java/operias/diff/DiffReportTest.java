@@ -7,6 +7,8 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+import operias.Configuration;
+
 import org.junit.Test;
 
 public class DiffReportTest {
@@ -366,4 +368,50 @@ public class DiffReportTest {
 		
 		assertTrue(exceptionThrown);
 	}
+	
+	/**
+	 * Test that comparing the directories in parallel gives the same result as the sequential comparison
+	 */
+	@Test
+	public void testParallelComparison() {
+		try {
+			DiffReport sequentialReport = new DiffReport("src/test/resources/mavenProject1", "src/test/resources/mavenProject2");
+			
+			Configuration.setDiffParallelism(4);
+			DiffReport parallelReport = new DiffReport("src/test/resources/mavenProject1", "src/test/resources/mavenProject2");
+			
+			assertSameDirectory(sequentialReport.getChangedFiles(), parallelReport.getChangedFiles());
+		} catch (IOException e) {
+			fail();
+		} finally {
+			Configuration.resetConfiguration();
+		}
+	}
+	
+	/**
+	 * Assert that two diff directories contain the same files and directories, in the same order
+	 * @param expected
+	 * @param actual
+	 */
+	private void assertSameDirectory(DiffDirectory expected, DiffDirectory actual) {
+		assertEquals(expected.getOriginalDirectoryName(), actual.getOriginalDirectoryName());
+		assertEquals(expected.getRevisedDirectoryName(), actual.getRevisedDirectoryName());
+		assertEquals(expected.getState(), actual.getState());
+		assertEquals(expected.getFiles().size(), actual.getFiles().size());
+		assertEquals(expected.getDirectories().size(), actual.getDirectories().size());
+		
+		for(int i = 0; i < expected.getFiles().size(); i++) {
+			DiffFile expectedFile = expected.getFiles().get(i);
+			DiffFile actualFile = actual.getFiles().get(i);
+			
+			assertEquals(expectedFile.getOriginalFileName(), actualFile.getOriginalFileName());
+			assertEquals(expectedFile.getRevisedFileName(), actualFile.getRevisedFileName());
+			assertEquals(expectedFile.getSourceState(), actualFile.getSourceState());
+			assertEquals(expectedFile.getChanges(), actualFile.getChanges());
+		}
+		
+		for(int i = 0; i < expected.getDirectories().size(); i++) {
+			assertSameDirectory(expected.getDirectories().get(i), actual.getDirectories().get(i));
+		}
+	}
 }
@@ -4,9 +4,21 @@ import static org.junit.Assert.*;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FilenameFilter;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
 
 import operias.Configuration;
+import operias.ProcessControl;
+import operias.diff.DiffDirectory;
+import operias.diff.DiffFile;
+import operias.diff.DiffReport;
+import operias.diff.GitSourceProvider;
+import operias.diff.SourceDiffState;
 
 import org.apache.commons.io.FileUtils;
 import org.junit.After;
@@ -99,4 +111,388 @@ public class GitTest {
 		assertTrue(exceptionThrown);
 	}
 	
+	/**
+	 * Test listing the changed files between two commits of a local repository, and comparing only those files
+	 */
+	@Test
+	public void testChangedFiles() {
+		try {
+			File repository = createRepository();
+			
+			String originalDirectory = Git.clone(repository.getAbsolutePath());
+			Thread.sleep(5);
+			String revisedDirectory = Git.clone(repository.getAbsolutePath());
+			Git.checkout(originalDirectory, "HEAD~1");
+			
+			Set<String> changedFiles = Git.changedFiles(originalDirectory, revisedDirectory);
+			assertTrue(changedFiles.contains(new File(revisedDirectory, "src/main/java/example/Music.java").getAbsolutePath()));
+			assertFalse(changedFiles.contains(new File(revisedDirectory, "src/main/java/example/Loops.java").getAbsolutePath()));
+			
+			DiffReport fullReport = new DiffReport(originalDirectory, revisedDirectory);
+			Configuration.setGitChangedFilesEnabled(true);
+			DiffReport gitReport = new DiffReport(originalDirectory, revisedDirectory);
+			
+			Map<String, SourceDiffState> expectedStates = new HashMap<String, SourceDiffState>();
+			collectStates(fullReport.getChangedFiles(), expectedStates);
+			Map<String, SourceDiffState> actualStates = new HashMap<String, SourceDiffState>();
+			collectStates(gitReport.getChangedFiles(), actualStates);
+			
+			assertEquals(expectedStates, actualStates);
+			assertEquals(SourceDiffState.SAME, actualStates.get(new File(revisedDirectory, "src/main/java/example/Loops.java").getAbsolutePath()));
+		} catch (Exception e) {
+			fail(e.getMessage());
+		} finally {
+			Configuration.setGitChangedFilesEnabled(false);
+		}
+	}
+	
+	/**
+	 * Test setting up both revisions of the same repository, using a single clone and a worktree
+	 */
+	@Test
+	public void testSetUpWorktree() {
+		try {
+			File repository = createRepository();
+			
+			Configuration.setOriginalRepositoryURL(repository.getAbsolutePath());
+			Configuration.setRevisedRepositoryURL(repository.getAbsolutePath());
+			Configuration.setOriginalCommitID("HEAD~1");
+			Configuration.setUpDirectoriesThroughGit();
+			
+			File originalDirectory = new File(Configuration.getOriginalDirectory());
+			File revisedDirectory = new File(Configuration.getRevisedDirectory());
+			
+			assertTrue(new File(originalDirectory, ".git").isDirectory());
+			// A worktree refers to the objects of the clone
+			assertTrue(new File(revisedDirectory, ".git").isFile());
+			
+			assertTrue(FileUtils.contentEquals(new File("src/test/resources/mavenProject1/src/main/java/example/Music.java"), new File(originalDirectory, "src/main/java/example/Music.java")));
+			assertTrue(FileUtils.contentEquals(new File("src/test/resources/mavenProject2/src/main/java/example/Music.java"), new File(revisedDirectory, "src/main/java/example/Music.java")));
+			assertTrue(new File(revisedDirectory, "src/main/java/example/NewClass.java").exists());
+			assertFalse(new File(originalDirectory, "src/main/java/example/NewClass.java").exists());
+		} catch (Exception e) {
+			fail(e.getMessage());
+		} finally {
+			String temporaryDirectory = Configuration.getTemporaryDirectory();
+			Configuration.resetConfiguration();
+			Configuration.setTemporaryDirectory(temporaryDirectory);
+		}
+	}
+	
+	/**
+	 * Test cloning through the mirror cache, repeated clones fetch into the mirror and the least recently used mirror is evicted
+	 */
+	@Test
+	public void testMirrorCache() {
+		try {
+			File repository = createRepository();
+			String repositoryURL = "file://" + repository.getAbsolutePath();
+			File cacheDirectory = new File(Configuration.getTemporaryDirectory(), "cache");
+			Configuration.setGitCacheDirectory(cacheDirectory.getAbsolutePath());
+			
+			String firstClone = Git.clone(repositoryURL);
+			assertTrue(new File(firstClone, "src/main/java/example/NewClass.java").exists());
+			assertEquals(1, cacheDirectory.list(new SuffixFilter(".git")).length);
+			
+			// A new commit is fetched into the existing mirror
+			FileUtils.writeStringToFile(new File(repository, "src/main/java/example/Added.java"), "package example;\n");
+			git(repository, "add", "-A");
+			git(repository, "-c", "user.name=operias", "-c", "user.email=operias@example.com", "commit", "-q", "-m", "added");
+			
+			Thread.sleep(5);
+			String secondClone = Git.clone(repositoryURL);
+			assertTrue(new File(secondClone, "src/main/java/example/Added.java").exists());
+			assertEquals(1, cacheDirectory.list(new SuffixFilter(".git")).length);
+			
+			// The clone refers to the repository, not to the mirror
+			File config = new File(secondClone, ".git/config");
+			assertTrue(FileUtils.readFileToString(config).contains(repositoryURL));
+			
+			// A cache which is too small only keeps the mirror which was used last
+			File otherRepository = new File(Configuration.getTemporaryDirectory(), "other");
+			FileUtils.copyDirectory(repository, otherRepository);
+			Configuration.setGitCacheSize(1);
+			
+			Thread.sleep(5);
+			Git.clone("file://" + otherRepository.getAbsolutePath());
+			assertEquals(1, cacheDirectory.list(new SuffixFilter(".git")).length);
+		} catch (Exception e) {
+			fail(e.getMessage());
+		} finally {
+			String temporaryDirectory = Configuration.getTemporaryDirectory();
+			Configuration.resetConfiguration();
+			Configuration.setTemporaryDirectory(temporaryDirectory);
+		}
+	}
+	
+	/**
+	 * Test all operations of the backend executing the git command
+	 */
+	@Test
+	public void testCommandLineBackend() {
+		testBackend(new CommandLineGitBackend());
+	}
+	
+	/**
+	 * Test all operations of the in process backend
+	 */
+	@Test
+	public void testJGitBackend() {
+		testBackend(new JGitBackend());
+	}
+	
+	/**
+	 * Clone, check out, list and read files and fetch using the given backend
+	 * @param backend
+	 */
+	private void testBackend(GitBackend backend) {
+		try {
+			File repository = createRepository();
+			File clone = new File(Configuration.getTemporaryDirectory(), "clone");
+			
+			backend.clone(repository.getAbsolutePath(), clone);
+			assertTrue(new File(clone, "src/main/java/example/NewClass.java").exists());
+			
+			backend.checkout(clone, "HEAD~1");
+			assertFalse(new File(clone, "src/main/java/example/NewClass.java").exists());
+			assertTrue(FileUtils.contentEquals(new File("src/test/resources/mavenProject1/src/main/java/example/Music.java"), new File(clone, "src/main/java/example/Music.java")));
+			
+			boolean exceptionThrown = false;
+			try {
+				backend.checkout(clone, "ARANDOMBRANCHWHICHCANNOTEXIST");
+			} catch (Exception e) {
+				exceptionThrown = true;
+			}
+			assertTrue(exceptionThrown);
+			
+			Map<String, String> originalTree = backend.listTree(clone, "HEAD");
+			Map<String, String> revisedTree = backend.listTree(clone, "origin/master");
+			assertFalse(originalTree.containsKey("src/main/java/example/NewClass.java"));
+			assertTrue(revisedTree.containsKey("src/main/java/example/NewClass.java"));
+			assertEquals(originalTree.get("src/main/java/example/Loops.java"), revisedTree.get("src/main/java/example/Loops.java"));
+			assertFalse(originalTree.get("src/main/java/example/Music.java").equals(revisedTree.get("src/main/java/example/Music.java")));
+			
+			byte[] content = backend.readBlob(clone, revisedTree.get("src/main/java/example/Music.java"));
+			assertArrayEquals(FileUtils.readFileToByteArray(new File("src/test/resources/mavenProject2/src/main/java/example/Music.java")), content);
+			
+			// A blob reader reads several blobs from the same open repository
+			BlobReader reader = backend.openBlobReader(clone);
+			try {
+				assertArrayEquals(content, reader.readBlob(revisedTree.get("src/main/java/example/Music.java")));
+				assertArrayEquals(FileUtils.readFileToByteArray(new File("src/test/resources/mavenProject1/src/main/java/example/Music.java")), reader.readBlob(originalTree.get("src/main/java/example/Music.java")));
+			} finally {
+				reader.close();
+			}
+			
+			// New commits become visible after fetching
+			FileUtils.writeStringToFile(new File(repository, "src/main/java/example/Added.java"), "package example;\n");
+			git(repository, "add", "-A");
+			git(repository, "-c", "user.name=operias", "-c", "user.email=operias@example.com", "commit", "-q", "-m", "added");
+			
+			backend.fetch(clone);
+			assertTrue(backend.listTree(clone, "origin/master").containsKey("src/main/java/example/Added.java"));
+			
+			// Nothing is cloned for a cancelled run
+			ProcessControl cancelledRun = new ProcessControl();
+			cancelledRun.cancel();
+			ProcessControl.setCurrentRun(cancelledRun);
+			exceptionThrown = false;
+			try {
+				backend.clone(repository.getAbsolutePath(), new File(Configuration.getTemporaryDirectory(), "cancelled"));
+			} catch (CancellationException e) {
+				exceptionThrown = true;
+			} finally {
+				ProcessControl.setCurrentRun(null);
+			}
+			assertTrue("Cloning was not cancelled", exceptionThrown);
+			assertFalse(new File(Configuration.getTemporaryDirectory(), "cancelled").exists());
+		} catch (Exception e) {
+			fail(e.getMessage());
+		}
+	}
+	
+	/**
+	 * Accepts file names with the given suffix
+	 */
+	private static class SuffixFilter implements FilenameFilter {
+		
+		private String suffix;
+		
+		public SuffixFilter(String suffix) {
+			this.suffix = suffix;
+		}
+		
+		@Override
+		public boolean accept(File directory, String name) {
+			return name.endsWith(suffix);
+		}
+	}
+	
+	/**
+	 * Test fetching only the two needed commits with a limited history, checking out only the main sources
+	 */
+	@Test
+	public void testShallowSparseClone() {
+		try {
+			File repository = createRepository();
+			String originalCommit = Git.execute(repository, "rev-parse", "HEAD~1").trim();
+			
+			Configuration.setOriginalRepositoryURL("file://" + repository.getAbsolutePath());
+			Configuration.setRevisedRepositoryURL("file://" + repository.getAbsolutePath());
+			Configuration.setOriginalCommitID(originalCommit);
+			Configuration.setShallowDepth(1);
+			Configuration.setSparsePaths(Arrays.asList("src/main"));
+			Configuration.setUpDirectoriesThroughGit();
+			
+			File originalDirectory = new File(Configuration.getOriginalDirectory());
+			File revisedDirectory = new File(Configuration.getRevisedDirectory());
+			
+			assertEquals(originalCommit, Git.execute(originalDirectory, "rev-parse", "HEAD").trim());
+			assertEquals("1", Git.execute(originalDirectory, "rev-list", "--count", "HEAD").trim());
+			
+			assertTrue(new File(originalDirectory, "pom.xml").exists());
+			assertTrue(FileUtils.contentEquals(new File("src/test/resources/mavenProject1/src/main/java/example/Music.java"), new File(originalDirectory, "src/main/java/example/Music.java")));
+			assertFalse(new File(originalDirectory, "src/test").exists());
+			
+			assertTrue(new File(revisedDirectory, "pom.xml").exists());
+			assertTrue(new File(revisedDirectory, "src/main/java/example/NewClass.java").exists());
+			assertFalse(new File(revisedDirectory, "src/test").exists());
+		} catch (Exception e) {
+			fail(e.getMessage());
+		} finally {
+			String temporaryDirectory = Configuration.getTemporaryDirectory();
+			Configuration.resetConfiguration();
+			Configuration.setTemporaryDirectory(temporaryDirectory);
+		}
+	}
+	
+	/**
+	 * Create a repository with two commits, the first one containing mavenProject1 and the second one mavenProject2
+	 * @return The repository directory
+	 * @throws Exception
+	 */
+	private File createRepository() throws Exception {
+		File repository = new File(Configuration.getTemporaryDirectory(), "repository");
+		FileUtils.copyDirectory(new File("src/test/resources/mavenProject1"), repository);
+		git(repository, "init", "-q", "-b", "master");
+		git(repository, "add", "-A");
+		git(repository, "-c", "user.name=operias", "-c", "user.email=operias@example.com", "commit", "-q", "-m", "original");
+		
+		FileUtils.deleteDirectory(new File(repository, "src"));
+		FileUtils.copyDirectory(new File("src/test/resources/mavenProject2"), repository);
+		git(repository, "add", "-A");
+		git(repository, "-c", "user.name=operias", "-c", "user.email=operias@example.com", "commit", "-q", "-m", "revised");
+		
+		return repository;
+	}
+	
+	/**
+	 * Test comparing the sources from the git objects, which must give the same result as comparing the directories
+	 */
+	@Test
+	public void testGitSources() {
+		try {
+			File repository = createRepository();
+			
+			String originalDirectory = Git.clone(repository.getAbsolutePath());
+			Thread.sleep(5);
+			String revisedDirectory = Git.clone(repository.getAbsolutePath());
+			Git.checkout(originalDirectory, "HEAD~1");
+			
+			GitSourceProvider originalSource = new GitSourceProvider(originalDirectory, "HEAD", new CommandLineGitBackend());
+			GitSourceProvider revisedSource = new GitSourceProvider(revisedDirectory, "HEAD", new JGitBackend());
+			String loops = "src/main/java/example/Loops.java";
+			assertEquals(originalSource.getContentID(new File(originalDirectory, loops).getAbsolutePath()), revisedSource.getContentID(new File(revisedDirectory, loops).getAbsolutePath()));
+			assertTrue(revisedSource.isDirectory(new File(revisedDirectory, "src/main/java/moreExamples").getAbsolutePath()));
+			assertFalse(originalSource.isDirectory(new File(originalDirectory, "src/main/java/moreExamples").getAbsolutePath()));
+			
+			DiffReport fullReport = new DiffReport(originalDirectory, revisedDirectory);
+			Configuration.setGitSourcesEnabled(true);
+			DiffReport gitReport = new DiffReport(originalDirectory, revisedDirectory);
+			
+			Map<String, SourceDiffState> expectedStates = new HashMap<String, SourceDiffState>();
+			collectStates(fullReport.getChangedFiles(), expectedStates);
+			Map<String, SourceDiffState> actualStates = new HashMap<String, SourceDiffState>();
+			collectStates(gitReport.getChangedFiles(), actualStates);
+			assertEquals(expectedStates, actualStates);
+			
+			String music = new File(revisedDirectory, "src/main/java/example/Music.java").getAbsolutePath();
+			DiffFile expectedMusic = fullReport.getChangedFiles().getFile(music);
+			DiffFile actualMusic = gitReport.getChangedFiles().getFile(music);
+			assertEquals(expectedMusic.getChanges(), actualMusic.getChanges());
+			assertEquals(expectedMusic.getOriginalLineCount(), actualMusic.getOriginalLineCount());
+			assertEquals(expectedMusic.getRevisedLineCount(), actualMusic.getRevisedLineCount());
+		} catch (Exception e) {
+			fail(e.getMessage());
+		} finally {
+			Configuration.setGitSourcesEnabled(false);
+		}
+	}
+	
+	/**
+	 * Test reading the sources of a worktree from the git objects of its repository, through the in process backend,
+	 * while the checkouts contain untracked files
+	 */
+	@Test
+	public void testGitSourcesFromWorktree() {
+		try {
+			File repository = createRepository();
+			
+			String originalDirectory = Git.clone(repository.getAbsolutePath());
+			String revisedDirectory = Git.addWorktree(originalDirectory, null, null);
+			Git.checkout(originalDirectory, "HEAD~1");
+			
+			assertEquals(Git.getGitDirectory(originalDirectory), Git.getGitDirectory(revisedDirectory));
+			assertFalse(Git.getHeadCommitID(originalDirectory).equals(Git.getHeadCommitID(revisedDirectory)));
+			
+			// Only part of the directories, not of the commits
+			FileUtils.writeStringToFile(new File(revisedDirectory, "src/main/java/example/Untracked.java"), "package example;\n");
+			
+			Configuration.setInProcessGitEnabled(true);
+			Configuration.setGitSourcesEnabled(true);
+			DiffReport gitReport = new DiffReport(originalDirectory, revisedDirectory);
+			
+			Map<String, SourceDiffState> states = new HashMap<String, SourceDiffState>();
+			collectStates(gitReport.getChangedFiles(), states);
+			assertEquals(SourceDiffState.NEW, states.get(new File(revisedDirectory, "src/main/java/example/NewClass.java").getAbsolutePath()));
+			assertEquals(SourceDiffState.CHANGED, states.get(new File(revisedDirectory, "src/main/java/example/Music.java").getAbsolutePath()));
+			assertFalse(states.containsKey(new File(revisedDirectory, "src/main/java/example/Untracked.java").getAbsolutePath()));
+		} catch (Exception e) {
+			fail(e.getMessage());
+		} finally {
+			Configuration.setInProcessGitEnabled(false);
+			Configuration.setGitSourcesEnabled(false);
+		}
+	}
+	
+	/**
+	 * Collect the states of all files in the directory by their revised, or for deleted files original, name
+	 * @param directory
+	 * @param states
+	 */
+	private void collectStates(DiffDirectory directory, Map<String, SourceDiffState> states) {
+		for(DiffFile file : directory.getFiles()) {
+			String name = file.getSourceState() == SourceDiffState.DELETED ? file.getOriginalFileName() : file.getRevisedFileName();
+			states.put(name, file.getSourceState());
+		}
+		
+		for(DiffDirectory subDirectory : directory.getDirectories()) {
+			collectStates(subDirectory, states);
+		}
+	}
+	
+	/**
+	 * Run a git command in the given directory
+	 * @param directory
+	 * @param arguments
+	 * @throws Exception
+	 */
+	private void git(File directory, String... arguments) throws Exception {
+		String[] command = new String[arguments.length + 1];
+		command[0] = "git";
+		System.arraycopy(arguments, 0, command, 1, arguments.length);
+		
+		Process process = new ProcessBuilder(command).directory(directory).inheritIO().start();
+		assertEquals(0, process.waitFor());
+	}
 }
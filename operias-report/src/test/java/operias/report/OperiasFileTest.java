@@ -6,6 +6,7 @@ import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
+import operias.OperiasException;
 import operias.OperiasStatus;
 import operias.coverage.*;
 import operias.diff.DiffFile;
@@ -15,8 +16,6 @@ import operias.report.change.CoverageIncreaseChange;
 import operias.report.change.DeleteSourceChange;
 import operias.report.change.InsertSourceChange;
 import operias.report.change.OperiasChange;
-import operias.test.general.ExitException;
-import operias.test.general.NoExitSecurityManager;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -215,19 +214,17 @@ public class OperiasFileTest {
 
 		DiffFile sourceDiff = new DiffFile("simple/Simple.java", "simple/Simple.java", 1, 1);
 		
-		System.setSecurityManager(new NoExitSecurityManager());
 		boolean exceptionThrown = false;
 		
 		try {
 			new OperiasFile(originalClass, revisedClass, sourceDiff);
 			
-		} catch (ExitException e) {
+		} catch (OperiasException e) {
 	    	exceptionThrown = true;
-            assertEquals("Invalid line comparison", OperiasStatus.ERROR_OPERIAS_INVALID_LINE_COMPARISON.ordinal(), e.status);
+            assertEquals("Invalid line comparison", OperiasStatus.ERROR_OPERIAS_INVALID_LINE_COMPARISON, e.getStatus());
 	    }
 		
 		assertTrue(exceptionThrown);
-		System.setSecurityManager(null);
 	}
 	
 	/**
@@ -244,19 +241,17 @@ public class OperiasFileTest {
 
 		DiffFile sourceDiff = new DiffFile("simple/Simple.java", "simple/Simple.java", 1, 1);
 		
-		System.setSecurityManager(new NoExitSecurityManager());
 		boolean exceptionThrown = false;
 		
 		try {
 			new OperiasFile(originalClass, revisedClass, sourceDiff);
 			
-		} catch (ExitException e) {
+		} catch (OperiasException e) {
 	    	exceptionThrown = true;
-            assertEquals("Invalid line comparison", OperiasStatus.ERROR_OPERIAS_INVALID_LINE_COMPARISON.ordinal(), e.status);
+            assertEquals("Invalid line comparison", OperiasStatus.ERROR_OPERIAS_INVALID_LINE_COMPARISON, e.getStatus());
 	    }
 		
 		assertTrue(exceptionThrown);
-		System.setSecurityManager(null);
 	}
 	
 	/**
@@ -417,19 +412,17 @@ public class OperiasFileTest {
 	 */
 	@Test
 	public void testInvalidClassComparison() {
-		System.setSecurityManager(new NoExitSecurityManager());
 		boolean exceptionThrown = false;
 		revisedClass = new CoberturaClass("Simple2" , "simple2/Simple2.java", "Simple2", 1, 1);
 		DiffFile sourceDiff = new DiffFile("simple/Simple.java", "simple/Simple.java", 0 , 0);
 		try {
 			new OperiasFile(originalClass, revisedClass, sourceDiff);
 			
-		} catch (ExitException e) {
+		} catch (OperiasException e) {
 	    	exceptionThrown = true;
-            assertEquals("Invalid line comparison", OperiasStatus.ERROR_OPERIAS_DIFF_INVALID_CLASS_COMPARISON.ordinal(), e.status);
+            assertEquals("Invalid line comparison", OperiasStatus.ERROR_OPERIAS_DIFF_INVALID_CLASS_COMPARISON, e.getStatus());
 	    }	
 		assertTrue(exceptionThrown);
-		System.setSecurityManager(null);
 	}
 	
 	/**
@@ -470,4 +463,27 @@ public class OperiasFileTest {
 		
 		
 	}
+	
+	/**
+	 * Compare a very large class, which must not exhaust the stack
+	 */
+	@Test
+	public void testLargeClassComparison() {
+		int lineCount = 200000;
+		
+		for(int i = 1; i <= lineCount; i++) {
+			originalClass.addLine(new CoberturaLine(i, 0, false, false));
+			revisedClass.addLine(new CoberturaLine(i, i % 2, false, false));
+		}
+		
+		DiffFile sourceDiff = new DiffFile("simple/Simple.java", "simple/Simple.java", lineCount, lineCount);
+		sourceDiff.setChanges(new LinkedList<Delta>());
+		
+		OperiasFile oFile = new OperiasFile(originalClass, revisedClass, sourceDiff);
+		
+		assertEquals(lineCount / 2, oFile.getChanges().size());
+		assertTrue(oFile.getChanges().getFirst() instanceof CoverageIncreaseChange);
+		assertEquals(1, oFile.getChanges().getFirst().getRevisedLineNumber());
+		assertEquals(lineCount - 1, oFile.getChanges().getLast().getRevisedLineNumber());
+	}
 }
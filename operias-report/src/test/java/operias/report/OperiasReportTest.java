@@ -8,6 +8,7 @@ import java.util.LinkedList;
 
 import operias.coverage.CoverageReport;
 import operias.diff.DiffReport;
+import operias.diff.SourceDiffState;
 import operias.output.html.HTMLReport;
 import operias.report.change.ChangeSourceChange;
 import operias.report.change.CoverageIncreaseChange;
@@ -151,4 +152,40 @@ public class OperiasReportTest {
 		
 		}
 	}
+	
+	/**
+	 * Test that completing a comparison made before the revised report was available gives the same report,
+	 * reusing the deleted classes and changed tests found beforehand
+	 */
+	@Test
+	public void testCompletingOriginalComparison() throws IOException {
+		CoverageReport originalCoverage = new CoverageReport(new File("src/test/resources/coverageMavenProject1.xml"), "src/test/resources/sureFireReports/").constructReport();
+		CoverageReport revisedCoverage = new CoverageReport(new File("src/test/resources/coverageMavenProject2.xml"), "src/test/resources/sureFireReports/").constructReport();
+		DiffReport diffReport = new DiffReport("src/test/resources/mavenProject1", "src/test/resources/mavenProject2");
+		
+		OriginalComparison comparison = new OriginalComparison(originalCoverage, diffReport);
+		assertFalse(comparison.getChangedTests().isEmpty());
+		
+		OperiasReport report = new OperiasReport(comparison, revisedCoverage);
+		OperiasReport expectedReport = new OperiasReport(originalCoverage, revisedCoverage, diffReport);
+		
+		assertEquals(expectedReport.getChangedTests(), report.getChangedTests());
+		assertEquals(expectedReport.getChangedClasses().size(), report.getChangedClasses().size());
+		
+		boolean deletedClassFound = false;
+		for(int i = 0; i < report.getChangedClasses().size(); i++) {
+			OperiasFile expectedClass = expectedReport.getChangedClasses().get(i);
+			OperiasFile actualClass = report.getChangedClasses().get(i);
+			
+			assertEquals(expectedClass.getClassName(), actualClass.getClassName());
+			assertSame(expectedClass.getSourceDiff(), actualClass.getSourceDiff());
+			assertEquals(expectedClass.getChanges().size(), actualClass.getChanges().size());
+			
+			if (actualClass.getSourceDiff().getSourceState() == SourceDiffState.DELETED) {
+				deletedClassFound = true;
+				assertSame(actualClass, comparison.getDeletedClass(actualClass.getOriginalClass(), actualClass.getSourceDiff()));
+			}
+		}
+		assertTrue("No deleted class was found", deletedClassFound);
+	}
 }
@@ -1,11 +0,0 @@
-package operias.test.general;
-
-@SuppressWarnings("serial")
-public class ExitException extends SecurityException 
-{
-    public final int status;
-    public ExitException(int status) 
-    {
-        this.status = status;
-    }
-}
@@ -52,6 +52,36 @@ public class Configuration {
 	 */
 	private static String temporaryDirectory = new File("temp/").getAbsolutePath();
 	
+	/**
+	 * Directory in which the mirrors of the repositories are kept, is an absolute path 
+	 */
+	private static String gitCacheDirectory = new File("cache/").getAbsolutePath();
+	
+	/**
+	 * Directory in which the coverage results of analysed commits are kept, is an absolute path 
+	 */
+	private static String coverageCacheDirectory = new File("coverage-cache/").getAbsolutePath();
+	
+	/**
+	 * Maximum time in seconds the maven execution of a revision may take
+	 */
+	private static long mavenTimeout = 3600;
+	
+	/**
+	 * Maximum time in seconds a git command may take
+	 */
+	private static long gitTimeout = 900;
+	
+	/**
+	 * Local maven repository shared by all executions, is an absolute path 
+	 */
+	private static String mavenRepository = new File("repository/").getAbsolutePath();
+	
+	/**
+	 * Command used to execute maven, set it to mvnd to keep maven warm between executions
+	 */
+	private static String mavenCommand = "mvn";
+	
 	/**
 	 * Parse the arguments passed by the command line
 	 * @param args
@@ -74,6 +104,24 @@ public class Configuration {
 				}  else if (args[i].equals("-td") || args[i].equals("--temporary-directory")) {
 					Configuration.setTemporaryDirectory(args[i + 1]);
 					i += 2;
+				} else if (args[i].equals("-gcd") || args[i].equals("--git-cache-directory")) {
+					Configuration.setGitCacheDirectory(args[i + 1]);
+					i += 2;
+				} else if (args[i].equals("-ccd") || args[i].equals("--coverage-cache-directory")) {
+					Configuration.setCoverageCacheDirectory(args[i + 1]);
+					i += 2;
+				} else if (args[i].equals("-mt") || args[i].equals("--maven-timeout")) {
+					Configuration.setMavenTimeout(Long.parseLong(args[i + 1]));
+					i += 2;
+				} else if (args[i].equals("-gt") || args[i].equals("--git-timeout")) {
+					Configuration.setGitTimeout(Long.parseLong(args[i + 1]));
+					i += 2;
+				} else if (args[i].equals("-mr") || args[i].equals("--maven-repository")) {
+					Configuration.setMavenRepository(args[i + 1]);
+					i += 2;
+				} else if (args[i].equals("-mc") || args[i].equals("--maven-command")) {
+					Configuration.setMavenCommand(args[i + 1]);
+					i += 2;
 				} else if (args[i].equals("-rd") || args[i].equals("--results-directory")) {
 					Configuration.setResultDirectory(args[i + 1]);
 					i += 2;
@@ -182,6 +230,90 @@ public class Configuration {
 		Configuration.temporaryDirectory = temporaryDirectory;
 	}
 
+	/**
+	 * @return the gitCacheDirectory
+	 */
+	public static String getGitCacheDirectory() {
+		return gitCacheDirectory;
+	}
+
+	/**
+	 * @param gitCacheDirectory the gitCacheDirectory to set
+	 */
+	public static void setGitCacheDirectory(String gitCacheDirectory) {
+		Configuration.gitCacheDirectory = new File(gitCacheDirectory).getAbsolutePath();
+	}
+
+	/**
+	 * @return the coverageCacheDirectory
+	 */
+	public static String getCoverageCacheDirectory() {
+		return coverageCacheDirectory;
+	}
+
+	/**
+	 * @param coverageCacheDirectory the coverageCacheDirectory to set
+	 */
+	public static void setCoverageCacheDirectory(String coverageCacheDirectory) {
+		Configuration.coverageCacheDirectory = new File(coverageCacheDirectory).getAbsolutePath();
+	}
+
+	/**
+	 * @return the mavenTimeout
+	 */
+	public static long getMavenTimeout() {
+		return mavenTimeout;
+	}
+
+	/**
+	 * @param mavenTimeout the mavenTimeout to set
+	 */
+	public static void setMavenTimeout(long mavenTimeout) {
+		Configuration.mavenTimeout = mavenTimeout;
+	}
+
+	/**
+	 * @return the gitTimeout
+	 */
+	public static long getGitTimeout() {
+		return gitTimeout;
+	}
+
+	/**
+	 * @param gitTimeout the gitTimeout to set
+	 */
+	public static void setGitTimeout(long gitTimeout) {
+		Configuration.gitTimeout = gitTimeout;
+	}
+
+	/**
+	 * @return the mavenRepository
+	 */
+	public static String getMavenRepository() {
+		return mavenRepository;
+	}
+
+	/**
+	 * @param mavenRepository the mavenRepository to set
+	 */
+	public static void setMavenRepository(String mavenRepository) {
+		Configuration.mavenRepository = new File(mavenRepository).getAbsolutePath();
+	}
+
+	/**
+	 * @return the mavenCommand
+	 */
+	public static String getMavenCommand() {
+		return mavenCommand;
+	}
+
+	/**
+	 * @param mavenCommand the mavenCommand to set
+	 */
+	public static void setMavenCommand(String mavenCommand) {
+		Configuration.mavenCommand = mavenCommand;
+	}
+
 	/**
 	 * @return the gitServerPort
 	 */
@@ -39,7 +39,8 @@ public class GitServletHandler extends AbstractHandler {
 			public void run() { 
 				System.out.println("Executing thread operias.");
 				Operias op = new Operias(object);
-				if(op.execute()) {
+				// A cancelled execution was replaced by a newer one, which posts the comment
+				if(op.execute() && !op.isCancelled()) {
 					
 					String message = op.constructMessage();
 
@@ -2,6 +2,8 @@ package operias.servlet;
 
 import java.io.File;
 import java.util.Calendar;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -11,13 +13,31 @@ import org.w3c.dom.Element;
 
 import com.google.gson.JsonObject;
 
+import operias.OperiasException;
+import operias.ProcessControl;
+
 public class Operias {
 	
+	/**
+	 * Executions which are running, by their pull request id
+	 */
+	private static final ConcurrentHashMap<String, Operias> runningExecutions = new ConcurrentHashMap<String, Operias>();
+	
 	/**
 	 * Pull data
 	 */
 	JsonObject gitData;
 	
+	/**
+	 * Control of the processes of this execution, used to cancel it
+	 */
+	private final ProcessControl processControl = new ProcessControl();
+	
+	/**
+	 * Released once the execution has finished, including the clean up of its directories
+	 */
+	private final CountDownLatch finished = new CountDownLatch(1);
+	
 	/**
 	 * Xml result, null if  opeiras failed executing
 	 */
@@ -58,7 +78,7 @@ public class Operias {
 				String baseRef = base.get("ref").getAsString();
 				
 				
-				String[] operiasArgs = new String[17];
+				String[] operiasArgs = new String[31];
 
 				String destinationDirectory = new File(Configuration.getResultDirectory(), "/result" + pullID).getAbsolutePath();
 				operiasArgs[0] = "--verbose";
@@ -78,17 +98,52 @@ public class Operias {
 				operiasArgs[14] = new File(Configuration.getTemporaryDirectory(), "/temp" + pullID  + Calendar.getInstance().getTimeInMillis()).getAbsolutePath();
 				operiasArgs[15] = "--destination-directory";
 				operiasArgs[16] = destinationDirectory;
+				operiasArgs[17] = "--git-cache-directory";
+				operiasArgs[18] = Configuration.getGitCacheDirectory();
+				operiasArgs[19] = "--coverage-cache-directory";
+				operiasArgs[20] = Configuration.getCoverageCacheDirectory();
+				operiasArgs[21] = "--maven-log-directory";
+				operiasArgs[22] = new File(Configuration.getResultDirectory(), "/logs" + pullID).getAbsolutePath();
+				operiasArgs[23] = "--maven-timeout";
+				operiasArgs[24] = Configuration.getMavenTimeout() + "";
+				operiasArgs[25] = "--git-timeout";
+				operiasArgs[26] = Configuration.getGitTimeout() + "";
+				operiasArgs[27] = "--maven-repository";
+				operiasArgs[28] = Configuration.getMavenRepository();
+				operiasArgs[29] = "--maven-command";
+				operiasArgs[30] = Configuration.getMavenCommand();
 
+				// A newer commit of the pull request makes a running execution outdated
+				Operias previousExecution = runningExecutions.put(pullID, this);
 				try {
-					operias.Main.main(operiasArgs);
+					if (previousExecution != null) {
+						// The cancelled execution still cleans up, so wait until it is done before starting
+						System.out.println("[Info] Cancelling the previous execution for pull request " + pullID);
+						previousExecution.cancel();
+						previousExecution.awaitFinished();
+					}
+					
+					if (isCancelled()) {
+						// An even newer commit arrived while waiting
+						return true;
+					}
+					
+					// Run operias within this JVM, a failure is reported through an exception instead of exiting
+					operias.Main.run(operiasArgs, processControl);
 					
 					// Get the xml result file
 					xmlResult = new File(destinationDirectory, "operias.xml");
 					if (!xmlResult.exists()) {
 						xmlResult = null;
 					}
+				} catch (OperiasException e) {
+					System.out.println("[Error] Operias failed for pull request " + pullID + " (" + e.getStatus() + "): " + e.getMessage());
+					xmlResult = null;
 				} catch (Exception e) {
 					xmlResult = null;
+				} finally {
+					runningExecutions.remove(pullID, this);
+					finished.countDown();
 				}
 
 				return true;
@@ -97,6 +152,31 @@ public class Operias {
 			}
 	}
 	
+	/**
+	 * Cancel the execution, the processes it started are killed
+	 */
+	public void cancel() {
+		processControl.cancel();
+	}
+	
+	/**
+	 * Wait until the execution has finished
+	 */
+	private void awaitFinished() {
+		try {
+			finished.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * @return True if the execution was cancelled
+	 */
+	public boolean isCancelled() {
+		return processControl.isCancelled();
+	}
+	
 	/**
 	 * Execute the pull request and construct the messag
 	 * @return
@@ -15,8 +15,6 @@ public class OperiasServlet  {
 	public static void main(String[] args) {
 		if (Configuration.parseArguments(args)) {
 		
-
-	        System.setSecurityManager(new NoExitSecurityManager());
 			Server gitServer = new Server(Configuration.getGitServerPort());
 		    gitServer.setHandler(new GitServletHandler());
 		    